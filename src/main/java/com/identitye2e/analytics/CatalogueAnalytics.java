@@ -0,0 +1,138 @@
+package com.identitye2e.analytics;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.CatalogueSnapshot;
+import com.identitye2e.model.LibraryListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+@Component
+public class CatalogueAnalytics implements LibraryListener {
+    /* Catalogue rollups kept up to date incrementally from Library change events, so dashboards read counters
+    instead of scanning. rebuild() recomputes everything with a parallel scan over the live store and swaps the
+    result in; use it to correct any drift. The scan runs over a point-in-time snapshot and never blocks writers.
+    Events go to the new counters as well from before the snapshot is opened until the swap, so writes the snapshot
+    does not see are counted. Only an event whose write landed just before the snapshot opened, and was delivered
+    just after, is counted twice. */
+    private final BookStore library;
+    private volatile Counters counters;
+    private volatile Counters rebuilding;
+
+    public CatalogueAnalytics(BookStore library) {
+        this.library = library;
+        this.counters = new Counters();
+        library.addListener(this);
+    }
+
+    public Map<String, Long> copiesByAuthor() {
+        Counters current = counters;
+        Map<String, Long> result = new TreeMap<>();
+        current.titlesByAuthor.forEach((author, titles) -> {
+            if (titles.sum() > 0) {
+                result.put(author, sum(current.copiesByAuthor.get(author)));
+            }
+        });
+        return result;
+    }
+
+    public Map<Integer, Long> titlesByYear() {
+        Map<Integer, Long> result = new TreeMap<>();
+        counters.titlesByYear.forEach((year, titles) -> {
+            long sum = titles.sum();
+            if (sum > 0) {
+                result.put(year, sum);
+            }
+        });
+        return result;
+    }
+
+    public long outOfStock() {
+        return counters.outOfStock.sum();
+    }
+
+    public synchronized void rebuild() {
+        Counters rebuilt = new Counters();
+        rebuilding = rebuilt;
+        try (CatalogueSnapshot snapshot = library.snapshot()) {
+            snapshot.books().parallel().forEach(rebuilt::add);
+            counters = rebuilt;
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    @Override
+    public void bookAdded(Book book) {
+        record(target -> target.add(book));
+    }
+
+    @Override
+    public void bookRemoved(Book book) {
+        record(target -> target.remove(book));
+    }
+
+    @Override
+    public void copiesChanged(Book book, int from, int to) {
+        record(target -> target.copiesChanged(book, from, to));
+    }
+
+    /* Reads rebuilding before counters: an event that misses the rebuild's counters here finds them already swapped in */
+    private void record(Consumer<Counters> event) {
+        Counters shadow = rebuilding;
+        Counters current = counters;
+        event.accept(current);
+        if (shadow != null && shadow != current) {
+            event.accept(shadow);
+        }
+    }
+
+    private static long sum(LongAdder adder) {
+        return adder == null ? 0 : adder.sum();
+    }
+
+    private static String author(Book book) {
+        return Objects.toString(book.getAuthor(), "unknown");
+    }
+
+    private static class Counters {
+        private final ConcurrentMap<String, LongAdder> copiesByAuthor = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, LongAdder> titlesByAuthor = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, LongAdder> titlesByYear = new ConcurrentHashMap<>();
+        private final LongAdder outOfStock = new LongAdder();
+
+        void add(Book book) {
+            copiesByAuthor.computeIfAbsent(author(book), key -> new LongAdder()).add(book.getAvailableCopies());
+            titlesByAuthor.computeIfAbsent(author(book), key -> new LongAdder()).increment();
+            titlesByYear.computeIfAbsent(book.getPublicationYear(), key -> new LongAdder()).increment();
+            if (book.getAvailableCopies() == 0) {
+                outOfStock.increment();
+            }
+        }
+
+        void remove(Book book) {
+            copiesByAuthor.computeIfAbsent(author(book), key -> new LongAdder()).add(-book.getAvailableCopies());
+            titlesByAuthor.computeIfAbsent(author(book), key -> new LongAdder()).decrement();
+            titlesByYear.computeIfAbsent(book.getPublicationYear(), key -> new LongAdder()).decrement();
+            if (book.getAvailableCopies() == 0) {
+                outOfStock.decrement();
+            }
+        }
+
+        void copiesChanged(Book book, int from, int to) {
+            copiesByAuthor.computeIfAbsent(author(book), key -> new LongAdder()).add(to - from);
+            if (from > 0 && to == 0) {
+                outOfStock.increment();
+            } else if (from == 0 && to > 0) {
+                outOfStock.decrement();
+            }
+        }
+    }
+}
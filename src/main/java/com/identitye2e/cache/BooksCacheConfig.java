@@ -0,0 +1,35 @@
+package com.identitye2e.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class BooksCacheConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService booksCacheRefresher() {
+        return Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "books-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean
+    public CacheManager cacheManager(@Value("${library.books-cache.ttl:PT10M}") Duration ttl,
+                                     @Value("${library.books-cache.refresh-after:PT8M}") Duration refreshAfter,
+                                     @Value("${library.books-cache.max-entries:1000}") int maxEntries,
+                                     ExecutorService booksCacheRefresher) {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(new CoalescingCache("books", ttl, refreshAfter, maxEntries, booksCacheRefresher)));
+        return cacheManager;
+    }
+}
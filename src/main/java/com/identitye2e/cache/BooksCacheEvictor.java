@@ -0,0 +1,48 @@
+package com.identitye2e.cache;
+
+import com.identitye2e.model.AuthorName;
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.Isbn;
+import com.identitye2e.model.LibraryListener;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BooksCacheEvictor implements LibraryListener {
+    /* Library hands out immutable Book values, so the "books" cache has to drop the ISBN and author keys of a book
+    whenever it changes or a cached lookup would keep serving the old copy count. Keys are the canonical ISBN and
+    the folded author, as in LibraryServiceImpl, so every spelling of a lookup is dropped at once. */
+    private final CacheManager cacheManager;
+
+    public BooksCacheEvictor(BookStore library, CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+        library.addListener(this);
+    }
+
+    @Override
+    public void bookAdded(Book book) {
+        evict(book);
+    }
+
+    @Override
+    public void bookRemoved(Book book) {
+        evict(book);
+    }
+
+    @Override
+    public void copiesChanged(Book book, int delta) {
+        evict(book);
+    }
+
+    private void evict(Book book) {
+        Cache cache = cacheManager.getCache("books");
+        if (cache != null) {
+            cache.evict(Isbn.canonical(book.getIsbn()));
+            if (book.getAuthor() != null) {
+                cache.evict(AuthorName.fold(book.getAuthor()));
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.identitye2e.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+public class CoalescingCache implements Cache {
+    /* Spring Cache backed by a map of futures. A miss installs an in-flight future before loading, so concurrent
+    misses for the same key (@Cacheable(sync = true)) wait on that one load instead of each hitting the Library.
+    Entries expire after ttl; a hit on an entry older than refreshAfter reloads it in the background so hot keys
+    are replaced before they expire and readers never see the miss.
+    At most maxEntries keys are kept. Each new key evicts one in CLOCK order, as in EncodedResponseCache, skipping
+    keys that are still loading, and moves the hand on a couple of keys to drop any that have expired, so expired
+    entries are cleared out even while the cache is under its bound. */
+    private static final int EXPIRY_STEPS = 2;
+    private static final Object NOT_LOADED = new Object(); // completes a key a batch load did not find; waiters look again
+
+    private final String name;
+    private final Map<Object, Entry> entries;
+    private final Queue<Object> hand;
+    private final Set<Object> queued;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final Executor refresher;
+    private final LongSupplier clock;
+
+    public CoalescingCache(String name, Duration ttl, Duration refreshAfter, int maxEntries, Executor refresher) {
+        this(name, ttl, refreshAfter, maxEntries, refresher, System::nanoTime);
+    }
+
+    CoalescingCache(String name, Duration ttl, Duration refreshAfter, int maxEntries, Executor refresher, LongSupplier clock) {
+        this.name = name;
+        this.entries = new ConcurrentHashMap<>();
+        this.hand = new ConcurrentLinkedQueue<>();
+        this.queued = ConcurrentHashMap.newKeySet();
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.refresher = refresher;
+        this.clock = clock;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return entries;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.isLoaded()) {
+            return null;
+        }
+        if (entry.expired(clock.getAsLong())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.referenced = true;
+        Object value = entry.value.join();
+        return value == NOT_LOADED ? null : new SimpleValueWrapper(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        for (;;) {
+            long now = clock.getAsLong();
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                Entry loading = new Entry();
+                entry = entries.putIfAbsent(key, loading);
+                if (entry == null) {
+                    admit(key, now);
+                    return (T) load(key, loading, valueLoader);
+                }
+            }
+            if (entry.isLoaded()) {
+                if (entry.expired(now)) {
+                    entries.remove(key, entry);
+                    continue;
+                }
+                entry.referenced = true;
+                if (now - entry.loadedAt >= refreshAfterNanos) {
+                    refresh(key, entry, valueLoader);
+                }
+            }
+            Object value;
+            try {
+                value = entry.value.join();
+            } catch (CompletionException e) {
+                // The shared load failed: every waiter gets the loader's exception, nothing is cached
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+            if (value != NOT_LOADED) {
+                return (T) value;
+            }
+        }
+    }
+
+    /* Batch form of get(key, valueLoader). Keys without an entry get in-flight entries before the one call to loader,
+    so concurrent gets wait for it and an evict during the load leaves its result unreachable, as for a single key.
+    Keys another caller is already loading are waited on. Keys the loader does not return are left out and not
+    cached. */
+    public <K> Map<K, Object> getAll(Collection<K> keys, Function<List<K>, Map<K, ?>> loader) {
+        long now = clock.getAsLong();
+        Map<K, Entry> owned = new LinkedHashMap<>();
+        Map<K, Entry> waiting = new LinkedHashMap<>();
+        for (K key : keys) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isLoaded() && entry.expired(now)) {
+                entries.remove(key, entry);
+                entry = null;
+            }
+            if (entry == null) {
+                Entry loading = new Entry();
+                entry = entries.putIfAbsent(key, loading);
+                if (entry == null) {
+                    admit(key, now);
+                    owned.put(key, loading);
+                    continue;
+                }
+            }
+            waiting.put(key, entry);
+        }
+        Map<K, Object> found = new HashMap<>();
+        if (!owned.isEmpty()) {
+            Map<K, ?> loaded;
+            try {
+                loaded = loader.apply(new ArrayList<>(owned.keySet()));
+            } catch (RuntimeException | Error e) {
+                owned.forEach((key, entry) -> {
+                    entries.remove(key, entry);
+                    entry.value.completeExceptionally(e);
+                });
+                throw e;
+            }
+            long loadedAt = clock.getAsLong();
+            owned.forEach((key, entry) -> {
+                Object value = loaded.get(key);
+                if (value == null) {
+                    entries.remove(key, entry);
+                    entry.complete(NOT_LOADED, loadedAt);
+                } else {
+                    entry.complete(value, loadedAt);
+                    found.put(key, value);
+                }
+            });
+        }
+        List<K> failed = new ArrayList<>();
+        waiting.forEach((key, entry) -> {
+            try {
+                Object value = entry.value.join();
+                if (value != NOT_LOADED) {
+                    found.put(key, value);
+                }
+            } catch (CompletionException e) {
+                failed.add(key);
+            }
+        });
+        // A single-key load that threw (the book was not found, say) says nothing cacheable about the key: read it again
+        if (!failed.isEmpty()) {
+            found.putAll(loader.apply(failed));
+        }
+        return found;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        long now = clock.getAsLong();
+        Entry entry = new Entry();
+        entry.complete(value, now);
+        entries.put(key, entry);
+        admit(key, now);
+    }
+
+    /* An in-flight load for an evicted key still completes for its waiters but is no longer reachable, so a
+    result computed before a mutation is never cached after the eviction that followed it */
+    @Override
+    public void evict(Object key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /* Called once the key's entry is mapped */
+    private void admit(Object key, long now) {
+        if (queued.add(key)) {
+            hand.add(key);
+        }
+        evictOverflow();
+        for (int i = 0; i < EXPIRY_STEPS; i++) {
+            Object next = hand.poll();
+            if (next == null) {
+                break;
+            }
+            Entry entry = entries.get(next);
+            if (entry != null && entry.isLoaded() && entry.expired(now)) {
+                entries.remove(next, entry);
+                entry = null;
+            }
+            if (entry == null) {
+                unqueue(next);
+            } else {
+                hand.add(next);
+            }
+        }
+    }
+
+    /* Bounded by queued keys rather than entries, so keys that were evicted or expired are swept out as well. Keys
+    still loading and keys hit since the hand last passed them get another lap, until the laps run out. */
+    private void evictOverflow() {
+        int laps = maxEntries;
+        while (queued.size() > maxEntries) {
+            Object key = hand.poll();
+            if (key == null) {
+                return;
+            }
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                unqueue(key);
+                continue;
+            }
+            if ((entry.referenced || !entry.value.isDone()) && laps-- > 0) {
+                entry.referenced = false;
+                hand.add(key);
+            } else {
+                entries.remove(key, entry);
+                unqueue(key);
+            }
+        }
+    }
+
+    /* A key that was mapped again meanwhile is queued again, so no entry escapes the bound */
+    private void unqueue(Object key) {
+        queued.remove(key);
+        if (entries.containsKey(key) && queued.add(key)) {
+            hand.add(key);
+        }
+    }
+
+    private Object load(Object key, Entry entry, Callable<?> valueLoader) {
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Throwable e) {
+            entries.remove(key, entry);
+            entry.value.completeExceptionally(e);
+            if (e instanceof Error error) {
+                throw error;
+            }
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        entry.complete(value, clock.getAsLong());
+        return value;
+    }
+
+    private void refresh(Object key, Entry entry, Callable<?> valueLoader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    Entry refreshed = new Entry();
+                    refreshed.complete(valueLoader.call(), clock.getAsLong());
+                    // Only swaps if nothing evicted or replaced the entry while the reload was running
+                    entries.replace(key, entry, refreshed);
+                } catch (Exception e) {
+                    entry.refreshing.set(false);
+                    System.out.println("Refresh of " + name + " cache key " + key + " failed: " + e.getMessage()); //Works as logger
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private final class Entry {
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long loadedAt;
+        private volatile boolean referenced;
+
+        private void complete(Object loaded, long now) {
+            loadedAt = now;
+            value.complete(loaded);
+        }
+
+        private boolean isLoaded() {
+            return value.isDone() && !value.isCompletedExceptionally();
+        }
+
+        private boolean expired(long now) {
+            return now - loadedAt >= ttlNanos;
+        }
+    }
+}
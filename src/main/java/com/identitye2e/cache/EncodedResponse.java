@@ -0,0 +1,38 @@
+package com.identitye2e.cache;
+
+import org.springframework.util.DigestUtils;
+
+public class EncodedResponse {
+    /* A fully serialised response body together with its strong ETag, ready to be written straight to the wire */
+    private final byte[] body;
+    private final String etag;
+
+    public EncodedResponse(byte[] body) {
+        this.body = body;
+        this.etag = "\"0" + DigestUtils.md5DigestAsHex(body) + "\"";
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
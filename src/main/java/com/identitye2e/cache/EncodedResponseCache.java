@@ -0,0 +1,147 @@
+package com.identitye2e.cache;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.Isbn;
+import com.identitye2e.model.LibraryListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class EncodedResponseCache implements LibraryListener {
+    /* HTTP layer cache of encoded ISBN lookup responses. A hit costs a map lookup and the byte copy onto the socket.
+    Entries are dropped whenever the Library mutates the book. Once maxEntries are cached, each new entry evicts one
+    in CLOCK order: an entry that was hit since the sweep last passed it gets another lap, so the ISBNs that keep
+    being asked for stay while one-off lookups cycle out. Keyed by canonical ISBN, so every spelling of an ISBN
+    shares one entry. */
+    static final int VERSION_STRIPES = 4096;
+
+    private final Map<String, Entry> responses;
+    private final Queue<String> clock;
+    private final Set<String> queued;
+    private final AtomicLongArray versions;
+    private final int maxEntries;
+
+    public EncodedResponseCache(BookStore library, @Value("${library.response-cache.max-entries:1000}") int maxEntries) {
+        this.responses = new ConcurrentHashMap<>();
+        this.clock = new ConcurrentLinkedQueue<>();
+        this.queued = ConcurrentHashMap.newKeySet();
+        this.versions = new AtomicLongArray(VERSION_STRIPES);
+        this.maxEntries = maxEntries;
+        library.addListener(this);
+    }
+
+    public EncodedResponse get(String isbn) {
+        Entry entry = responses.get(Isbn.canonical(isbn));
+        if (entry == null) {
+            return null;
+        }
+        entry.referenced = true;
+        return entry.response;
+    }
+
+    /* Must be read before the book is loaded; passed back to put so a response built from a book that was mutated
+    in the meantime is served once but never cached. Versions are kept per ISBN hash stripe, so a write only holds
+    back admissions for that ISBN (and the rare ISBN sharing its stripe). */
+    public long stamp(String isbn) {
+        return versions.get(stripe(Isbn.canonical(isbn)));
+    }
+
+    public EncodedResponse put(String isbn, byte[] body, long stamp) {
+        EncodedResponse response = new EncodedResponse(body);
+        String key = Isbn.canonical(isbn);
+        int stripe = stripe(key);
+        if (versions.get(stripe) != stamp) {
+            return response;
+        }
+        Entry entry = new Entry(response);
+        responses.put(key, entry);
+        if (versions.get(stripe) != stamp) {
+            responses.remove(key, entry);
+            return response;
+        }
+        // Mapped before it is queued, so a sweep that takes the key off the queue always finds the entry
+        if (queued.add(key)) {
+            clock.add(key);
+        }
+        evictOverflow();
+        return response;
+    }
+
+    public void invalidate(String isbn) {
+        String key = Isbn.canonical(isbn);
+        versions.incrementAndGet(stripe(key));
+        responses.remove(key);
+    }
+
+    public void clear() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        responses.clear();
+    }
+
+    public int size() {
+        return responses.size();
+    }
+
+    @Override
+    public void bookAdded(Book book) {
+        invalidate(book.getIsbn());
+    }
+
+    @Override
+    public void bookRemoved(Book book) {
+        invalidate(book.getIsbn());
+    }
+
+    @Override
+    public void copiesChanged(Book book, int delta) {
+        invalidate(book.getIsbn());
+    }
+
+    /* Bounded by queued keys rather than entries, so keys whose entries were invalidated are swept out as well */
+    private void evictOverflow() {
+        int laps = maxEntries;
+        while (queued.size() > maxEntries) {
+            String key = clock.poll();
+            if (key == null) {
+                return;
+            }
+            queued.remove(key);
+            Entry entry = responses.get(key);
+            if (entry == null) {
+                continue;
+            }
+            if (entry.referenced && laps-- > 0) {
+                entry.referenced = false;
+                if (queued.add(key)) {
+                    clock.add(key);
+                }
+            } else {
+                responses.remove(key, entry);
+            }
+        }
+    }
+
+    private static int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private static final class Entry {
+        private final EncodedResponse response;
+        private volatile boolean referenced;
+
+        private Entry(EncodedResponse response) {
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.identitye2e.controller;
+
+import com.identitye2e.analytics.CatalogueAnalytics;
+import com.identitye2e.response.Response;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/library/analytics")
+public class AnalyticsController {
+
+    private final CatalogueAnalytics analytics;
+
+    public AnalyticsController(CatalogueAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    @GetMapping("/copiesByAuthor")
+    public ResponseEntity<Response> copiesByAuthor() {
+        return new ResponseEntity<>(new Response(analytics.copiesByAuthor(), HttpStatus.OK.value()), HttpStatus.OK);
+    }
+
+    @GetMapping("/titlesByYear")
+    public ResponseEntity<Response> titlesByYear() {
+        return new ResponseEntity<>(new Response(analytics.titlesByYear(), HttpStatus.OK.value()), HttpStatus.OK);
+    }
+
+    @GetMapping("/outOfStock")
+    public ResponseEntity<Response> outOfStock() {
+        return new ResponseEntity<>(new Response(analytics.outOfStock(), HttpStatus.OK.value()), HttpStatus.OK);
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<Response> rebuild() {
+        analytics.rebuild();
+        return new ResponseEntity<>(new Response("Analytics rebuilt", HttpStatus.OK.value()), HttpStatus.OK);
+    }
+}
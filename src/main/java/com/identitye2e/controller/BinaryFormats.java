@@ -0,0 +1,58 @@
+package com.identitye2e.controller;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+final class BinaryFormats {
+    /* Compact Jackson encodings offered next to JSON. Endpoints returning Response objects negotiate them through the
+    registered message converters; endpoints that write pre-encoded JSON ask preferred() whether to switch. */
+    static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    static final List<MediaType> ALL = List.of(MediaType.APPLICATION_CBOR, SMILE);
+
+    private BinaryFormats() {
+    }
+
+    /* The binary format the Accept header ranks above JSON, or null. Wildcards and ties go to JSON so browsers,
+    curl and existing clients keep getting JSON; only an explicit, higher ranked binary type switches. */
+    static MediaType preferred(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        MediaType best = null;
+        double bestQuality = quality(accepted, MediaType.APPLICATION_JSON);
+        for (MediaType format : ALL) {
+            double quality = quality(accepted, format);
+            if (quality > bestQuality) {
+                best = format;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /* Quality of the most specific range that includes the type, as in RFC 9110 section 12.5.1 */
+    private static double quality(List<MediaType> accepted, MediaType type) {
+        double quality = 0;
+        int specificity = -1;
+        for (MediaType range : accepted) {
+            if (range.includes(type)) {
+                int rangeSpecificity = range.isWildcardType() ? 0 : range.isWildcardSubtype() ? 1 : 2;
+                if (rangeSpecificity > specificity) {
+                    specificity = rangeSpecificity;
+                    quality = range.getQualityValue();
+                } else if (rangeSpecificity == specificity) {
+                    quality = Math.max(quality, range.getQualityValue());
+                }
+            }
+        }
+        return quality;
+    }
+}
@@ -0,0 +1,59 @@
+package com.identitye2e.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.CatalogueSnapshot;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+
+@RestController
+@RequestMapping("/api/library")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final BookStore library;
+    private final ObjectMapper objectMapper;
+
+    public ExportController(BookStore library, ObjectMapper objectMapper) {
+        this.library = library;
+        this.objectMapper = objectMapper;
+    }
+
+    /* Streams a point-in-time copy of the catalogue, one book per line, while borrows and returns carry on. The
+    snapshot is taken when the request arrives. The body closes it, and so does the end of the async request, which
+    also covers a body that never ran because the request timed out or the client went away first. */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(HttpServletRequest request) {
+        CatalogueSnapshot snapshot = library.snapshot();
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(snapshot, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                snapshot.close();
+            }
+        });
+        StreamingResponseBody body = out -> {
+            try (snapshot) {
+                Iterator<Book> books = snapshot.books().iterator();
+                while (books.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(books.next()));
+                    out.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header("X-Snapshot-Epoch", String.valueOf(snapshot.getEpoch()))
+                .body(body);
+    }
+}
@@ -1,60 +1,144 @@
 package com.identitye2e.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.identitye2e.cache.EncodedResponse;
+import com.identitye2e.cache.EncodedResponseCache;
 import com.identitye2e.exceptions.BookNotFoundException;
+import com.identitye2e.exceptions.IdempotencyKeyReusedException;
+import com.identitye2e.exceptions.IdempotencyStoreFullException;
 import com.identitye2e.exceptions.InsufficientCopiesException;
+import com.identitye2e.idempotency.IdempotencyStore;
 import com.identitye2e.model.Book;
+import com.identitye2e.model.BookBatch;
+import com.identitye2e.model.BookPage;
 import com.identitye2e.response.Response;
-import com.identitye2e.service.LibraryServiceImpl;
+import com.identitye2e.service.LibraryService;
+import com.identitye2e.tracing.Operation;
+import com.identitye2e.tracing.OperationTracer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/library")
 public class LibraryController {
 
-    private final LibraryServiceImpl libraryService;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 500;
 
-    public LibraryController(LibraryServiceImpl libraryService) {
+    private final LibraryService libraryService;
+    private final EncodedResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyStore idempotencyStore;
+    private final OperationTracer tracer;
+
+    public LibraryController(LibraryService libraryService, EncodedResponseCache responseCache, ObjectMapper objectMapper,
+                             IdempotencyStore idempotencyStore, OperationTracer tracer) {
         this.libraryService = libraryService;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+        this.idempotencyStore = idempotencyStore;
+        this.tracer = tracer;
     }
 
     @PostMapping("/book/add")
-    public ResponseEntity<Response> addBook(@RequestBody Book book) {
+    public ResponseEntity<Response> addBook(@RequestBody Book book,
+                                            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         if (book.getIsbn() == null) {
             return new ResponseEntity<>(new Response("isbn is empty", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
 
         }
-        libraryService.addBook(book);
-        return new ResponseEntity<>(new Response("Book added successfully", HttpStatus.CREATED.value()), HttpStatus.CREATED);
+        return idempotent(idempotencyKey, IdempotencyStore.fingerprint("addBook", book.getIsbn(), book.getTitle(),
+                book.getAuthor(), book.getPublicationYear(), book.getAvailableCopies()), () -> {
+            try {
+                libraryService.addBook(book);
+                return new ResponseEntity<>(new Response("Book added successfully", HttpStatus.CREATED.value()), HttpStatus.CREATED);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+            }
+        });
     }
 
     @DeleteMapping("/book/remove")
-    public ResponseEntity<Response> removeBook(@RequestParam("isbn") String isbn) {
+    public ResponseEntity<Response> removeBook(@RequestParam("isbn") String isbn,
+                                               @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         if (isbn == null || isbn.isEmpty()) {
             return new ResponseEntity<>(new Response("isbn is empty", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
         }
-        try {
-            libraryService.removeBook(isbn);
-            return new ResponseEntity<>(new Response("Book: " + isbn + " removed successfully", HttpStatus.NO_CONTENT.value()), HttpStatus.NO_CONTENT);
-        } catch (BookNotFoundException e) {
-            return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.NOT_FOUND.value()), HttpStatus.NOT_FOUND);
-        }
+        return idempotent(idempotencyKey, IdempotencyStore.fingerprint("removeBook", isbn), () -> {
+            try {
+                libraryService.removeBook(isbn);
+                return new ResponseEntity<>(new Response("Book: " + isbn + " removed successfully", HttpStatus.NO_CONTENT.value()), HttpStatus.NO_CONTENT);
+            } catch (BookNotFoundException e) {
+                return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.NOT_FOUND.value()), HttpStatus.NOT_FOUND);
+            }
+        });
     }
 
     @GetMapping("/findBookByIsbn")
-    public ResponseEntity<Response> findBookByISBN(@RequestParam("isbn") String isbn) {
+    public ResponseEntity<?> findBookByISBN(@RequestParam("isbn") String isbn,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
         if (isbn == null || isbn.trim().isEmpty()) {
             return new ResponseEntity<>(new Response("isbn is empty", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
         }
-        try {
-            Book book = libraryService.findBookByISBN(isbn);
-            return new ResponseEntity<>(new Response(book, HttpStatus.OK.value()), HttpStatus.OK);
-        } catch (BookNotFoundException e) {
-            return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.NOT_FOUND.value()), HttpStatus.NOT_FOUND);
+        MediaType binary = BinaryFormats.preferred(accept);
+        if (binary != null) {
+            try {
+                Book book = libraryService.findBookByISBN(isbn);
+                return ResponseEntity.ok().contentType(binary).varyBy(HttpHeaders.ACCEPT).body(new Response(book, HttpStatus.OK.value()));
+            } catch (BookNotFoundException e) {
+                return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.NOT_FOUND.value()), HttpStatus.NOT_FOUND);
+            }
         }
+        EncodedResponse encoded = responseCache.get(isbn);
+        if (encoded == null) {
+            long stamp = responseCache.stamp(isbn);
+            try {
+                Book book = libraryService.findBookByISBN(isbn);
+                // Traced on its own: the other endpoints are serialized by Spring after they return
+                try (Operation serialize = tracer.start("serializeBook", isbn)) {
+                    encoded = responseCache.put(isbn, objectMapper.writeValueAsBytes(new Response(book, HttpStatus.OK.value())), stamp);
+                    serialize.results(encoded.getBody().length);
+                }
+            } catch (BookNotFoundException e) {
+                return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.NOT_FOUND.value()), HttpStatus.NOT_FOUND);
+            }
+        }
+        if (encoded.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(encoded.getEtag()).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(encoded.getEtag())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(encoded.getBody());
+    }
+
+    @PostMapping("/findBooksByIsbns")
+    public ResponseEntity<Response> findBooksByISBNs(@RequestBody(required = false) List<String> isbns) {
+        if (isbns == null || isbns.isEmpty()) {
+            return new ResponseEntity<>(new Response("isbns is empty", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+        }
+        if (isbns.size() > MAX_BATCH_SIZE) {
+            return new ResponseEntity<>(new Response("at most " + MAX_BATCH_SIZE + " isbns per request", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+        }
+        // contains(null) throws on immutable lists, so look for the null by hand
+        if (isbns.stream().anyMatch(Objects::isNull)) {
+            return new ResponseEntity<>(new Response("isbns must not contain null", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+        }
+        BookBatch batch = libraryService.findBooksByISBNs(isbns);
+        return new ResponseEntity<>(new Response(batch, HttpStatus.OK.value()), HttpStatus.OK);
     }
 
     @GetMapping("/findBooksByAuthor")
@@ -70,29 +154,77 @@ public class LibraryController {
         }
     }
 
-    @PostMapping("/borrowBook")
-    public ResponseEntity<?> borrowBook(@RequestParam("isbn") String isbn) {
-        if (isbn == null || isbn.trim().isEmpty()) {
-            return new ResponseEntity<>(new Response("isbn is empty", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+    @GetMapping("/findBooksByYear")
+    public ResponseEntity<Response> findBooksByPublicationYear(@RequestParam("fromYear") int fromYear,
+                                                               @RequestParam("toYear") int toYear,
+                                                               @RequestParam(value = "author", required = false) String author,
+                                                               @RequestParam(value = "after", required = false) String after,
+                                                               @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        if (fromYear > toYear) {
+            return new ResponseEntity<>(new Response("fromYear is after toYear", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
         }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            return new ResponseEntity<>(new Response("limit must be between 1 and " + MAX_PAGE_SIZE, HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+        }
+        String authorFilter = author == null || author.trim().isEmpty() ? null : author;
         try {
-            libraryService.borrowBook(isbn);
-            return new ResponseEntity<>(new Response("Book borrowed!", HttpStatus.OK.value()), HttpStatus.OK);
-        } catch (InsufficientCopiesException | BookNotFoundException e) {
+            BookPage page = libraryService.findBooksByPublicationYear(authorFilter, fromYear, toYear, after, limit);
+            return new ResponseEntity<>(new Response(page, HttpStatus.OK.value()), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
         }
     }
 
+    @PostMapping("/borrowBook")
+    public ResponseEntity<Response> borrowBook(@RequestParam("isbn") String isbn,
+                                               @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        if (isbn == null || isbn.trim().isEmpty()) {
+            return new ResponseEntity<>(new Response("isbn is empty", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+        }
+        return idempotent(idempotencyKey, IdempotencyStore.fingerprint("borrowBook", isbn), () -> {
+            try {
+                libraryService.borrowBook(isbn);
+                return new ResponseEntity<>(new Response("Book borrowed!", HttpStatus.OK.value()), HttpStatus.OK);
+            } catch (InsufficientCopiesException | BookNotFoundException e) {
+                return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+            }
+        });
+    }
+
     @PostMapping("/returnBook")
-    public ResponseEntity<?> returnBook(@RequestParam("isbn") String isbn) {
+    public ResponseEntity<Response> returnBook(@RequestParam("isbn") String isbn,
+                                               @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         if (isbn == null || isbn.trim().isEmpty()) {
             return new ResponseEntity<>(new Response("isbn is empty", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
         }
+        return idempotent(idempotencyKey, IdempotencyStore.fingerprint("returnBook", isbn), () -> {
+            try {
+                libraryService.returnBook(isbn);
+                return new ResponseEntity<>(new Response("Book returned!", HttpStatus.OK.value()), HttpStatus.OK);
+            } catch (BookNotFoundException e) {
+                return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+            }
+        });
+    }
+
+    /* Retried requests carrying the same Idempotency-Key get the original response back instead of running again */
+    private ResponseEntity<Response> idempotent(String idempotencyKey, String fingerprint, Supplier<ResponseEntity<Response>> action) {
         try {
-            libraryService.returnBook(isbn);
-            return new ResponseEntity<>(new Response("Book returned!", HttpStatus.OK.value()), HttpStatus.OK);
-        } catch (BookNotFoundException e) {
-            return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+            return idempotencyStore.execute(client(), idempotencyKey, fingerprint, action);
+        } catch (IdempotencyKeyReusedException e) {
+            return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY.value()), HttpStatus.UNPROCESSABLE_ENTITY);
+        } catch (IdempotencyStoreFullException e) {
+            return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value()), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /* Idempotency keys are scoped to the authenticated user if there is one. Anonymous keys stand alone: they are
+    client-generated UUIDs, and a mobile client retrying after a timeout often comes back from another address. */
+    private static String client() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            return request.getUserPrincipal() != null ? request.getUserPrincipal().getName() : null;
         }
+        return null;
     }
 }
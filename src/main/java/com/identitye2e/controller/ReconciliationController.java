@@ -0,0 +1,65 @@
+package com.identitye2e.controller;
+
+import com.identitye2e.reconciliation.InventoryReconciler;
+import com.identitye2e.reconciliation.ReconciliationReport;
+import com.identitye2e.reconciliation.StockFile;
+import com.identitye2e.response.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/library/reconciliation")
+public class ReconciliationController {
+
+    private final InventoryReconciler reconciler;
+    private final int maxUploadBytes;
+
+    public ReconciliationController(InventoryReconciler reconciler,
+                                    @Value("${library.reconciliation.max-upload:32MB}") DataSize maxUpload) {
+        this.reconciler = reconciler;
+        this.maxUploadBytes = (int) Math.min(Integer.MAX_VALUE - 1, maxUpload.toBytes());
+    }
+
+    /* Starts a run against the uploaded stock count and returns at once; poll GET for the report. The body is read
+    up to the upload limit and no further, so an oversized upload is refused without being held in memory. */
+    @PostMapping(consumes = {"text/csv", "text/plain"})
+    public ResponseEntity<Response> reconcile(InputStream body) throws IOException {
+        byte[] upload = body.readNBytes(maxUploadBytes + 1);
+        if (upload.length > maxUploadBytes) {
+            return new ResponseEntity<>(new Response("stock file is larger than " + maxUploadBytes + " bytes", HttpStatus.PAYLOAD_TOO_LARGE.value()), HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+        String stockFile = new String(upload, StandardCharsets.UTF_8);
+        if (stockFile.isBlank()) {
+            return new ResponseEntity<>(new Response("stock file is empty", HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+        }
+        Map<String, Integer> stock;
+        try {
+            stock = StockFile.parse(new StringReader(stockFile));
+        } catch (IllegalArgumentException | IOException e) {
+            return new ResponseEntity<>(new Response(e.getMessage(), HttpStatus.BAD_REQUEST.value()), HttpStatus.BAD_REQUEST);
+        }
+        ReconciliationReport report = reconciler.start("upload", stock);
+        if (report == null) {
+            return new ResponseEntity<>(new Response("a reconciliation is already running", HttpStatus.CONFLICT.value()), HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(new Response(report, HttpStatus.ACCEPTED.value()), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping
+    public ResponseEntity<Response> latest() {
+        ReconciliationReport report = reconciler.latest();
+        if (report == null) {
+            return new ResponseEntity<>(new Response("no reconciliation has run", HttpStatus.NOT_FOUND.value()), HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(new Response(report, HttpStatus.OK.value()), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,39 @@
+package com.identitye2e.controller;
+
+import com.identitye2e.model.BookStore;
+import com.identitye2e.response.Response;
+import com.identitye2e.tracing.RecentSpans;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/library/stats")
+public class StatsController {
+
+    private final BookStore library;
+    private final RecentSpans recentSpans;
+
+    public StatsController(BookStore library, RecentSpans recentSpans) {
+        this.library = library;
+        this.recentSpans = recentSpans;
+    }
+
+    @GetMapping("/contention")
+    public ResponseEntity<Response> contention() {
+        return new ResponseEntity<>(new Response(library.contentionStats(), HttpStatus.OK.value()), HttpStatus.OK);
+    }
+
+    @GetMapping("/tiers")
+    public ResponseEntity<Response> tiers() {
+        return library.tierStats()
+                .map(stats -> new ResponseEntity<>(new Response(stats, HttpStatus.OK.value()), HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(new Response("store is not tiered", HttpStatus.NOT_FOUND.value()), HttpStatus.NOT_FOUND));
+    }
+
+    /* Empty unless library.tracing.enabled is set */
+    @GetMapping("/traces")
+    public ResponseEntity<Response> traces() {
+        return new ResponseEntity<>(new Response(recentSpans.recent(), HttpStatus.OK.value()), HttpStatus.OK);
+    }
+}
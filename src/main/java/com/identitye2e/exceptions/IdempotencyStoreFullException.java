@@ -0,0 +1,7 @@
+package com.identitye2e.exceptions;
+
+public class IdempotencyStoreFullException extends RuntimeException {
+    public IdempotencyStoreFullException(String message) {
+        super(message);
+    }
+}
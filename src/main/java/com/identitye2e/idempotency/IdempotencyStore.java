@@ -0,0 +1,167 @@
+package com.identitye2e.idempotency;
+
+import com.identitye2e.exceptions.IdempotencyKeyReusedException;
+import com.identitye2e.exceptions.IdempotencyStoreFullException;
+import com.identitye2e.response.Response;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+@Component
+public class IdempotencyStore {
+    /* Remembers the response of every mutating request sent with an Idempotency-Key and replays it for retries.
+    Keys are scoped to the client that sent them, when it is known, so two users picking the same key do not see each
+    other's responses. A duplicate that arrives while the original is still running waits for it instead of running again.
+    Entries live for a fixed TTL, so insertion order is expiry order and eviction pops the head of a FIFO queue; the
+    oldest finished entries also go first when the store is over its size bound. Entries whose request is still
+    running are never evicted, as their duplicates must keep waiting on them; when nothing else can go, new keys
+    are refused. */
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final Map<String, Entry> entries;
+    private final Queue<Entry> expiryOrder;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    @Autowired
+    public IdempotencyStore(@Value("${library.idempotency.ttl:PT24H}") Duration ttl,
+                            @Value("${library.idempotency.max-entries:100000}") int maxEntries) {
+        this(ttl, maxEntries, System::nanoTime);
+    }
+
+    IdempotencyStore(Duration ttl, int maxEntries, LongSupplier clock) {
+        this.entries = new ConcurrentHashMap<>();
+        this.expiryOrder = new ConcurrentLinkedQueue<>();
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /* Runs the action once per client and key; the fingerprint identifies the request so a key reused for another
+    one is rejected */
+    public ResponseEntity<Response> execute(String client, String key, String fingerprint,
+                                            Supplier<ResponseEntity<Response>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String scoped = fingerprint(client, key);
+        for (;;) {
+            long now = clock.getAsLong();
+            Entry entry = new Entry(scoped, fingerprint, now + ttlNanos);
+            Entry existing = entries.putIfAbsent(scoped, entry);
+            if (existing == null) {
+                expiryOrder.add(entry);
+                if (!evict(now)) {
+                    // Everything older is still running: refuse rather than forget a key a duplicate is waiting on
+                    entries.remove(scoped, entry);
+                    entry.response.complete(null);
+                    throw new IdempotencyStoreFullException("Too many requests with an " + HEADER + " are in progress");
+                }
+                return run(entry, action);
+            }
+            if (existing.expiresAt - now <= 0 && existing.response.isDone()) {
+                entries.remove(scoped, existing);
+                continue;
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException("Idempotency key " + key + " was already used for a different request");
+            }
+            ResponseEntity<Response> original = existing.response.join();
+            if (original != null) {
+                return ResponseEntity.status(original.getStatusCode())
+                        .headers(original.getHeaders())
+                        .header(REPLAYED_HEADER, "true")
+                        .body(original.getBody());
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /* Joins the fields of a request into a fingerprint. Each field is length-prefixed, so no choice of values can
+    make two different requests produce the same string. */
+    public static String fingerprint(Object... fields) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Object field : fields) {
+            if (field == null) {
+                fingerprint.append("-|");
+            } else {
+                String value = field.toString();
+                fingerprint.append(value.length()).append(':').append(value).append('|');
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private ResponseEntity<Response> run(Entry entry, Supplier<ResponseEntity<Response>> action) {
+        try {
+            ResponseEntity<Response> response = action.get();
+            entry.response.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            // Nothing to replay: forget the key and let waiting duplicates run the request themselves
+            entries.remove(entry.key, entry);
+            entry.response.complete(null);
+            throw e;
+        }
+    }
+
+    /* Lock-free while the oldest entry is live and the store is under its bound, which is the common case for a new
+    key. Concurrent new keys can each pass that check, so the bound may be overshot by a few until the next one. */
+    private boolean evict(long now) {
+        Entry head = expiryOrder.peek();
+        if ((head == null || head.expiresAt - now > 0) && entries.size() <= maxEntries) {
+            return true;
+        }
+        return evictOverdue(now);
+    }
+
+    /* Entries still running are moved to the back of the queue. Only requests in progress are there, so one pass
+    over them is cheap; the pass stops when it comes back round to the first entry it moved. False when the store
+    is still over its bound because every entry left is running. */
+    private synchronized boolean evictOverdue(long now) {
+        Entry firstMoved = null;
+        Entry head;
+        while ((head = expiryOrder.peek()) != null && head != firstMoved
+                && (head.expiresAt - now <= 0 || entries.size() > maxEntries)) {
+            expiryOrder.poll();
+            if (head.response.isDone()) {
+                entries.remove(head.key, head);
+            } else if (entries.get(head.key) == head) {
+                expiryOrder.add(head);
+                if (firstMoved == null) {
+                    firstMoved = head;
+                }
+            }
+        }
+        return entries.size() <= maxEntries || (head != null && head != firstMoved);
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<ResponseEntity<Response>> response;
+
+        private Entry(String key, String fingerprint, long expiresAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+            this.response = new CompletableFuture<>();
+        }
+    }
+}
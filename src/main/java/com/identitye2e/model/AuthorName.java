@@ -0,0 +1,48 @@
+package com.identitye2e.model;
+
+import java.text.Normalizer;
+
+public final class AuthorName {
+    /* Author folding for matching: case, accents and punctuation are dropped and runs of initials are joined, so
+    "J. R. R. Tolkien", "J.R.R. Tolkien", "JRR Tolkien" and "jrr tolkien" all fold to "jrr tolkien", and
+    "Gabriel García Márquez" matches "Gabriel Garcia Marquez". Apostrophes vanish rather than split a name. */
+
+    private AuthorName() {
+    }
+
+    public static String fold(String author) {
+        if (author == null) {
+            return "";
+        }
+        String plain = Normalizer.normalize(author, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(plain.length());
+        int tokenStart = 0;
+        boolean previousInitial = false;
+        for (int i = 0; i <= plain.length(); i++) {
+            char c = i < plain.length() ? plain.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK || c == '\'' || c == '\u2019') {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                folded.append(Character.toLowerCase(c));
+                continue;
+            }
+            // Token boundary: a single letter directly after another initial is glued to it
+            int length = folded.length() - tokenStart;
+            if (length == 0) {
+                continue;
+            }
+            boolean initial = length == 1;
+            if (initial && previousInitial && tokenStart > 0) {
+                folded.deleteCharAt(tokenStart - 1);
+            }
+            previousInitial = initial;
+            folded.append(' ');
+            tokenStart = folded.length();
+        }
+        if (folded.length() > 0) {
+            folded.setLength(folded.length() - 1);
+        }
+        return folded.toString();
+    }
+}
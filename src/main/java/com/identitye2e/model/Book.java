@@ -3,16 +3,17 @@ package com.identitye2e.model;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Book {
+    /* Immutable. Library hands out a fresh Book for every read, carrying the copy count at that moment */
     @JsonProperty("isbn")
-    private String isbn;
+    private final String isbn;
     @JsonProperty("title")
-    private String title;
+    private final String title;
     @JsonProperty("author")
-    private String author;
+    private final String author;
     @JsonProperty("publicationYear")
-    private int publicationYear;
+    private final int publicationYear;
     @JsonProperty("availableCopies")
-    private int availableCopies;
+    private final int availableCopies;
 
     public Book(String isbn, String title, String author, int publicationYear, int availableCopies) {
         this.isbn = isbn;
@@ -42,8 +43,11 @@ public class Book {
         return availableCopies;
     }
 
-    public void setAvailableCopies(int availableCopies) {
-        this.availableCopies = availableCopies;
+    public Book withAvailableCopies(int availableCopies) {
+        if (availableCopies == this.availableCopies) {
+            return this;
+        }
+        return new Book(isbn, title, author, publicationYear, availableCopies);
     }
 
     @Override
@@ -0,0 +1,26 @@
+package com.identitye2e.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class BookBatch {
+    /* Result of a multi-get: the books that were found, in request order, and the ISBNs that were not */
+    @JsonProperty("found")
+    private final List<Book> found;
+    @JsonProperty("missing")
+    private final List<String> missing;
+
+    public BookBatch(List<Book> found, List<String> missing) {
+        this.found = found;
+        this.missing = missing;
+    }
+
+    public List<Book> getFound() {
+        return found;
+    }
+
+    public List<String> getMissing() {
+        return missing;
+    }
+}
@@ -0,0 +1,37 @@
+package com.identitye2e.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class BookContention {
+    @JsonProperty("isbn")
+    private final String isbn;
+    @JsonProperty("title")
+    private final String title;
+    @JsonProperty("contention")
+    private final int contention;
+    @JsonProperty("stripes")
+    private final int stripes;
+
+    public BookContention(String isbn, String title, int contention, int stripes) {
+        this.isbn = isbn;
+        this.title = title;
+        this.contention = contention;
+        this.stripes = stripes;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getContention() {
+        return contention;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+}
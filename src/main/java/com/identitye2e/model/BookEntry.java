@@ -0,0 +1,190 @@
+package com.identitye2e.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+final class BookEntry {
+    /* What Library stores per ISBN: the immutable book as added, its versioned copy counter, and - while snapshots
+    are open - the entry it replaced. A removal under an open snapshot leaves a tombstone entry so older snapshots
+    still find the book. Failed CAS attempts on the counter are sampled as contention, per sampling window; entries
+    that are hot within one window are inflated to a striped counter once and stay that way; their stripes' failed
+    CAS attempts are then sampled instead. */
+    private static final VarHandle COPIES;
+
+    static {
+        try {
+            COPIES = MethodHandles.lookup().findVarHandle(BookEntry.class, "copies", CopiesState.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final Book book;
+    final long addedEpoch;
+    final boolean removed;
+    volatile BookEntry previous;
+    private volatile CopiesState copies;
+    private int contention;
+    private long contentionWindow;
+
+    private BookEntry(Book book, long addedEpoch, BookEntry previous, boolean removed, CopiesState copies) {
+        this.book = book;
+        this.addedEpoch = addedEpoch;
+        this.previous = previous;
+        this.removed = removed;
+        this.copies = copies;
+    }
+
+    static BookEntry added(Book book, long epoch, BookEntry previous) {
+        return new BookEntry(book, epoch, previous, false, new CopiesState(book.getAvailableCopies(), epoch, null, null));
+    }
+
+    static BookEntry tombstone(BookEntry removed, long epoch) {
+        return new BookEntry(removed.book, epoch, removed, true, new CopiesState(0, epoch, null, null));
+    }
+
+    String isbn() {
+        return book.getIsbn();
+    }
+
+    Book current() {
+        return book.withAvailableCopies(copies.copies());
+    }
+
+    int availableCopies() {
+        return copies.copies();
+    }
+
+    /* The book as a snapshot taken at the given epoch sees it, or null if it did not exist then */
+    Book at(long snapshot) {
+        BookEntry entry = this;
+        while (entry != null && entry.addedEpoch > snapshot) {
+            entry = entry.previous;
+        }
+        if (entry == null || entry.removed) {
+            return null;
+        }
+        return entry.book.withAvailableCopies(entry.copies.copiesAt(snapshot));
+    }
+
+    /* Copies left after taking one, or -1 when there were none */
+    int takeCopy(Epochs epochs) {
+        for (;;) {
+            CopiesState current = copies;
+            if (current.stripes != null) {
+                return current.stripes.take(epochs);
+            }
+            if (current.value <= 0) {
+                return -1;
+            }
+            if (COPIES.compareAndSet(this, current, current.next(current.value - 1, null, epochs))) {
+                return current.value - 1;
+            }
+            contention++;
+        }
+    }
+
+    /* Copies after the change */
+    int adjustCopies(int delta, Epochs epochs) {
+        for (;;) {
+            CopiesState current = copies;
+            if (current.stripes != null) {
+                if (delta >= 0) {
+                    return current.stripes.give(delta, epochs);
+                }
+                int left = current.stripes.sum();
+                for (int i = delta; i < 0; i++) {
+                    int taken = current.stripes.take(epochs);
+                    if (taken < 0) {
+                        break;
+                    }
+                    left = taken;
+                }
+                return left;
+            }
+            int next = Math.max(0, current.value + delta);
+            if (COPIES.compareAndSet(this, current, current.next(next, null, epochs))) {
+                return next;
+            }
+            contention++;
+        }
+    }
+
+    /* Compare-and-set of the whole count. A striped counter cannot be swapped without losing takes racing on its old
+    stripes, so it gets the difference instead: concurrent borrows and returns still land on top of the correction. */
+    boolean correctCopies(int expected, int counted, Epochs epochs) {
+        for (;;) {
+            CopiesState current = copies;
+            if (current.stripes != null) {
+                if (current.stripes.sum() != expected) {
+                    return false;
+                }
+                adjustCopies(counted - expected, epochs);
+                return true;
+            }
+            if (current.value != expected) {
+                return false;
+            }
+            if (COPIES.compareAndSet(this, current, current.next(counted, null, epochs))) {
+                return true;
+            }
+            contention++;
+        }
+    }
+
+    boolean inflate(Epochs epochs) {
+        for (;;) {
+            CopiesState current = copies;
+            if (current.stripes != null) {
+                return false;
+            }
+            StripedCopies stripes = new StripedCopies(current.value, epochs.current());
+            if (COPIES.compareAndSet(this, current, current.next(0, stripes, epochs))) {
+                return true;
+            }
+        }
+    }
+
+    /* Failed CAS attempts in the given sampling window, on the single counter or on the stripes; the count starts
+    again from 0 in each new window. Updated without synchronisation, so it is a sample rather than an exact count */
+    int contention(long window) {
+        StripedCopies stripes = copies.stripes;
+        if (contentionWindow != window) {
+            contentionWindow = window;
+            contention = 0;
+            if (stripes != null) {
+                stripes.drainCollisions();
+            }
+        }
+        if (stripes != null) {
+            contention += stripes.drainCollisions();
+        }
+        return contention;
+    }
+
+    void addContention(long window, int collisions) {
+        contention(window);
+        contention += collisions;
+    }
+
+    boolean isStriped() {
+        return copies.stripes != null;
+    }
+
+    int stripeCount() {
+        StripedCopies stripes = copies.stripes;
+        return stripes == null ? 1 : stripes.stripes();
+    }
+
+    /* Drops replaced entries no snapshot at or after the given epoch can see. Returns true when no history is left */
+    boolean trim(long oldest) {
+        BookEntry entry = this;
+        while (entry != null && entry.addedEpoch > oldest) {
+            entry = entry.previous;
+        }
+        if (entry != null) {
+            entry.previous = null;
+        }
+        return previous == null;
+    }
+}
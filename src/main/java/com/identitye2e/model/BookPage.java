@@ -0,0 +1,28 @@
+package com.identitye2e.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookPage {
+    /* One page of an ordered query; pass next back as the cursor to get the following page, null on the last page */
+    @JsonProperty("books")
+    private final List<Book> books;
+    @JsonProperty("next")
+    private final String next;
+
+    public BookPage(List<Book> books, String next) {
+        this.books = books;
+        this.next = next;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public String getNext() {
+        return next;
+    }
+}
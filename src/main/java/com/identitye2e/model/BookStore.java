@@ -0,0 +1,65 @@
+package com.identitye2e.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/* Storage SPI behind the service layer. Library is the in-memory engine; com.identitye2e.store has a disk backed one.
+   Implementations must be thread safe, hand out immutable Book values, apply each mutation to one ISBN atomically
+   and notify listeners after it is applied. ISBN arguments match in canonical form (Isbn.canonical) and author
+   arguments by folded name (AuthorName.fold). Pick the engine with library.store (memory, disk or tiered).
+   Engines that hold files release them in close(), which the application context calls on shutdown. */
+public interface BookStore extends AutoCloseable {
+
+    void addListener(LibraryListener listener);
+
+    /* Adds the book, or replaces the book with the same ISBN */
+    void addBook(Book book);
+
+    void removeBook(String isbn);
+
+    /* Weakly consistent view over every book; safe to stream while the store is being mutated */
+    Stream<Book> books();
+
+    Optional<Book> findBookByISBN(String isbn);
+
+    /* Books found for the given ISBNs, in request order; ISBNs that are not in the store are left out */
+    Map<String, Book> findBooksByISBNs(Collection<String> isbns);
+
+    List<Book> findBooksByAuthor(String author);
+
+    /* Books published between fromYear and toYear inclusive, optionally by one author, ordered by year then ISBN */
+    BookPage findBooksByPublicationYear(String author, int fromYear, int toYear, String after, int limit);
+
+    /* Takes one copy; false when the book is missing or has no copies left */
+    boolean borrowBook(String isbn);
+
+    /* Gives one copy back; false when the book is missing or has no copies */
+    boolean returnBook(String isbn);
+
+    /* Sets the available copies to counted if they are still expected; false when the book is missing or a borrow or
+       return has moved the count on since it was read. The check and the set are one update, except for a Library
+       book whose counter has been striped: its stripes cannot be swapped as one, so the sum is checked and then
+       moved by counted - expected. A borrow or return landing between the two steps is then kept on top of the
+       correction instead of failing it, and the listeners are told expected -> counted all the same. */
+    boolean correctCopies(String isbn, int expected, int counted);
+
+    /* Point-in-time view that stays consistent while writers carry on; must be closed */
+    CatalogueSnapshot snapshot();
+
+    /* Books whose copy counters are contended, hottest first; empty for engines that do not sample contention */
+    default List<BookContention> contentionStats() {
+        return List.of();
+    }
+
+    /* Hot and cold tier sizes and traffic; empty for engines that keep every book in one tier */
+    default Optional<TierStats> tierStats() {
+        return Optional.empty();
+    }
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,39 @@
+package com.identitye2e.model;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class CatalogueSnapshot implements AutoCloseable {
+    /* Point-in-time view of a BookStore. Iterating it takes no locks and never blocks writers; the versions it needs
+    are kept alive until it is closed, so always close it (try-with-resources). */
+    private final long epoch;
+    private final Supplier<Stream<Book>> books;
+    private final Runnable release;
+    private final AtomicBoolean closed;
+
+    public CatalogueSnapshot(long epoch, Supplier<Stream<Book>> books, Runnable release) {
+        this.epoch = epoch;
+        this.books = books;
+        this.release = release;
+        this.closed = new AtomicBoolean();
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public Stream<Book> books() {
+        if (closed.get()) {
+            throw new IllegalStateException("Snapshot " + epoch + " is closed");
+        }
+        return books.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.identitye2e.model;
+
+final class CopiesState {
+    /* One immutable version of a copy counter. Counters are swapped by CAS to a new CopiesState on every change; while
+    snapshots are open the new version links back to the versions they still need, otherwise the chain is dropped.
+    An inflated counter keeps its count in stripes instead of value. */
+    final int value;
+    final long epoch;
+    final CopiesState previous;
+    final StripedCopies stripes;
+
+    CopiesState(int value, long epoch, CopiesState previous, StripedCopies stripes) {
+        this.value = value;
+        this.epoch = epoch;
+        this.previous = previous;
+        this.stripes = stripes;
+    }
+
+    int copies() {
+        return stripes == null ? value : stripes.sum();
+    }
+
+    CopiesState next(int value, StripedCopies stripes, Epochs epochs) {
+        long now = epochs.current();
+        CopiesState kept = null;
+        if (epochs.snapshotsOpen()) {
+            kept = trim(epoch < now ? this : previous, epochs.oldestOpen());
+        }
+        return new CopiesState(value, now, kept, stripes);
+    }
+
+    /* Newest version visible to a snapshot taken at the given epoch, or null if the counter is younger than it */
+    CopiesState at(long snapshot) {
+        CopiesState state = this;
+        while (state != null && state.epoch > snapshot) {
+            state = state.previous;
+        }
+        return state;
+    }
+
+    int copiesAt(long snapshot) {
+        CopiesState state = at(snapshot);
+        if (state == null) {
+            return 0;
+        }
+        return state.stripes == null ? state.value : state.stripes.copiesAt(snapshot);
+    }
+
+    /* Versions older than the newest one visible to the oldest open snapshot can no longer be read */
+    private static CopiesState trim(CopiesState state, long oldest) {
+        if (state == null) {
+            return null;
+        }
+        if (state.epoch <= oldest) {
+            return state.previous == null ? state : new CopiesState(state.value, state.epoch, null, state.stripes);
+        }
+        CopiesState previous = trim(state.previous, oldest);
+        return previous == state.previous ? state : new CopiesState(state.value, state.epoch, previous, state.stripes);
+    }
+}
@@ -0,0 +1,41 @@
+package com.identitye2e.model;
+
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class Epochs {
+    /* Version clock for the Library. Every write is stamped with the current epoch; opening a snapshot registers the
+    current epoch and then advances it, so the snapshot sees exactly the writes stamped at or before its epoch.
+    Writers only ever read two volatiles here. Opening and closing snapshots is rare and synchronised. */
+    static final long NONE_OPEN = Long.MAX_VALUE;
+
+    private final AtomicLong epoch = new AtomicLong(1);
+    private final TreeMap<Long, Integer> open = new TreeMap<>();
+    private volatile long oldestOpen = NONE_OPEN;
+
+    long current() {
+        return epoch.get();
+    }
+
+    /* Callers must read current() before this, so that a snapshot newer than their epoch is always seen as open */
+    boolean snapshotsOpen() {
+        return oldestOpen != NONE_OPEN;
+    }
+
+    long oldestOpen() {
+        return oldestOpen;
+    }
+
+    synchronized long open() {
+        long snapshot = epoch.get();
+        open.merge(snapshot, 1, Integer::sum);
+        oldestOpen = open.firstKey();
+        epoch.incrementAndGet();
+        return snapshot;
+    }
+
+    synchronized void close(long snapshot) {
+        open.computeIfPresent(snapshot, (key, count) -> count == 1 ? null : count - 1);
+        oldestOpen = open.isEmpty() ? NONE_OPEN : open.firstKey();
+    }
+}
@@ -0,0 +1,73 @@
+package com.identitye2e.model;
+
+public final class Isbn {
+    /* ISBN canonicalisation. Valid ISBN-10 and ISBN-13 values, with or without hyphens and spaces, all map to the
+    bare 13 digit form, so "978-0-13-468599-1", "9780134685991" and "0-13-468599-7" are one key. Anything that is
+    not a valid ISBN (wrong length, bad check digit, other characters) is its own key and is returned unchanged. */
+
+    private Isbn() {
+    }
+
+    public static String canonical(String isbn) {
+        if (isbn == null || isbn.length() > 17) {
+            return isbn;
+        }
+        char[] digits = new char[13];
+        int count = 0;
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            boolean checkX = (c == 'X' || c == 'x') && count == 9 && i == lastNonSeparator(isbn);
+            if (count == 13 || !(c >= '0' && c <= '9' || checkX)) {
+                return isbn;
+            }
+            digits[count++] = checkX ? 'X' : c;
+        }
+        if (count == 13 && isbn13CheckDigit(digits) == digits[12] - '0') {
+            return count == isbn.length() ? isbn : new String(digits);
+        }
+        if (count == 10 && isValidIsbn10(digits)) {
+            char[] converted = new char[13];
+            converted[0] = '9';
+            converted[1] = '7';
+            converted[2] = '8';
+            System.arraycopy(digits, 0, converted, 3, 9);
+            converted[12] = (char) ('0' + isbn13CheckDigit(converted));
+            return new String(converted);
+        }
+        return isbn;
+    }
+
+    public static boolean isValid(String isbn) {
+        String canonical = canonical(isbn);
+        return canonical != null && canonical.length() == 13 && canonical.chars().allMatch(Character::isDigit)
+                && isbn13CheckDigit(canonical.toCharArray()) == canonical.charAt(12) - '0';
+    }
+
+    private static int lastNonSeparator(String isbn) {
+        int i = isbn.length() - 1;
+        while (i >= 0 && (isbn.charAt(i) == '-' || isbn.charAt(i) == ' ')) {
+            i--;
+        }
+        return i;
+    }
+
+    private static boolean isValidIsbn10(char[] digits) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            int value = digits[i] == 'X' ? 10 : digits[i] - '0';
+            sum += value * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+
+    private static int isbn13CheckDigit(char[] digits) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits[i] - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -1,60 +1,260 @@
 package com.identitye2e.model;
 
 
-import org.springframework.stereotype.Component;
-
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-@Component
-public class Library {
+public class Library implements BookStore {
     /* This class is to manage a collection of books and provide operations for adding, removing, and searching books.
-    It also supports borrowing and returning books  */
-    private final Map<String, Book> books;
+    It also supports borrowing and returning books.
+    Books are stored as versioned entries (see BookEntry): reads return immutable Book values and snapshot() gives a
+    point-in-time view that long running readers can iterate without blocking writers.
+    Books are keyed by canonical ISBN (see Isbn) and authors are looked up by folded name in the year index, so any
+    spelling of either costs one normalisation of the query rather than a comparison against every book. */
+    static final int REPORT_CONTENTION = 16;
+    static final int STRIPE_CONTENTION = 64;
+    static final long CONTENTION_WINDOW_NANOS = 1_000_000_000L;
+
+    private final Map<String, BookEntry> books;
+    private final Map<String, BookEntry> contended;
+    private final Queue<String> versioned;
+    private final Epochs epochs;
+    private final PublicationYearIndex yearIndex;
+    private final List<LibraryListener> listeners;
+    private final LongSupplier clock;
 
     public Library() {
+        this(System::nanoTime);
+    }
+
+    Library(LongSupplier clock) {
+        this.clock = clock;
         this.books = new ConcurrentHashMap<>();
+        this.contended = new ConcurrentHashMap<>();
+        this.versioned = new ConcurrentLinkedQueue<>();
+        this.epochs = new Epochs();
+        this.yearIndex = new PublicationYearIndex();
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    @Override
+    public void addListener(LibraryListener listener) {
+        listeners.add(listener);
     }
+
+    @Override
     public void addBook(Book book) {
-        books.put(book.getIsbn(), book);
+        BookEntry[] replaced = new BookEntry[1];
+        books.compute(Isbn.canonical(book.getIsbn()), (isbn, current) -> {
+            long now = epochs.current();
+            BookEntry kept = null;
+            if (current != null && epochs.snapshotsOpen()) {
+                kept = current;
+                versioned.add(isbn);
+            }
+            if (current != null && !current.removed) {
+                yearIndex.remove(current.book);
+            }
+            yearIndex.add(book);
+            replaced[0] = current;
+            return BookEntry.added(book, now, kept);
+        });
+        BookEntry previous = replaced[0];
+        if (previous != null && !previous.removed) {
+            contended.remove(previous.isbn(), previous);
+            Book removed = previous.current();
+            listeners.forEach(listener -> listener.bookRemoved(removed));
+        }
+        listeners.forEach(listener -> listener.bookAdded(book));
     }
 
+    @Override
     public void removeBook(String isbn) {
-        books.remove(isbn);
+        BookEntry[] removed = new BookEntry[1];
+        books.computeIfPresent(Isbn.canonical(isbn), (key, current) -> {
+            if (current.removed) {
+                return current;
+            }
+            removed[0] = current;
+            yearIndex.remove(current.book);
+            long now = epochs.current();
+            if (!epochs.snapshotsOpen()) {
+                return null;
+            }
+            versioned.add(key);
+            return BookEntry.tombstone(current, now);
+        });
+        if (removed[0] != null) {
+            contended.remove(removed[0].isbn(), removed[0]);
+            Book book = removed[0].current();
+            listeners.forEach(listener -> listener.bookRemoved(book));
+        }
     }
 
+    @Override
+    public Stream<Book> books() {
+        return books.values().stream()
+                .filter(entry -> !entry.removed)
+                .map(BookEntry::current);
+    }
 
+    @Override
     public Optional<Book> findBookByISBN(String isbn) {
-        Book book = books.get(isbn);
-        return Optional.ofNullable(book);
+        BookEntry entry = live(isbn);
+        return entry == null ? Optional.empty() : Optional.of(entry.current());
+    }
+
+    @Override
+    public Map<String, Book> findBooksByISBNs(Collection<String> isbns) {
+        Map<String, Book> found = new LinkedHashMap<>();
+        for (String isbn : isbns) {
+            BookEntry entry = live(isbn);
+            if (entry != null) {
+                found.put(isbn, entry.current());
+            }
+        }
+        return found;
     }
 
+    @Override
     public List<Book> findBooksByAuthor(String author) {
-        return books.values().stream()
-                        .filter(book -> book.getAuthor().equalsIgnoreCase(author))
-                        .collect(Collectors.toList());
+        return yearIndex.byAuthor(author, isbn -> {
+            BookEntry entry = live(isbn);
+            return entry == null ? null : entry.current();
+        });
     }
 
+    @Override
+    public BookPage findBooksByPublicationYear(String author, int fromYear, int toYear, String after, int limit) {
+        return yearIndex.page(author, fromYear, toYear, after, limit, isbn -> {
+            BookEntry entry = live(isbn);
+            return entry == null ? null : entry.current();
+        });
+    }
+
+    @Override
     public boolean borrowBook(String isbn) {
-        Optional<Book> optionalBook = findBookByISBN(isbn);
-            if (optionalBook.isPresent() && optionalBook.get().getAvailableCopies() > 0) {
-                Book book = optionalBook.get();
-                book.setAvailableCopies(book.getAvailableCopies() - 1);
-                return true;
-            }
-            return false;
+        BookEntry entry = live(isbn);
+        int left = entry == null ? -1 : entry.takeCopy(epochs);
+        if (left >= 0) {
+            checkContention(entry);
+            Book book = entry.current();
+            listeners.forEach(listener -> listener.copiesChanged(book, left + 1, left));
+            return true;
+        }
+        return false;
     }
 
+    @Override
     public boolean returnBook(String isbn) {
-            Optional<Book> optionalBook = findBookByISBN(isbn);
-            if (optionalBook.isPresent() && optionalBook.get().getAvailableCopies() > 0) {
-                Book book = optionalBook.get();
-                book.setAvailableCopies(book.getAvailableCopies() + 1);
-                return true;
-            }
+        BookEntry entry = live(isbn);
+        if (entry != null && entry.availableCopies() > 0) {
+            int copies = entry.adjustCopies(1, epochs);
+            checkContention(entry);
+            Book book = entry.current();
+            listeners.forEach(listener -> listener.copiesChanged(book, copies - 1, copies));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean correctCopies(String isbn, int expected, int counted) {
+        BookEntry entry = live(isbn);
+        if (entry == null || !entry.correctCopies(expected, counted, epochs)) {
             return false;
+        }
+        Book book = entry.current();
+        listeners.forEach(listener -> listener.copiesChanged(book, expected, counted));
+        return true;
+    }
+
+    @Override
+    public CatalogueSnapshot snapshot() {
+        long epoch = epochs.open();
+        return new CatalogueSnapshot(epoch, () -> books.values().stream()
+                .map(entry -> entry.at(epoch))
+                .filter(Objects::nonNull), () -> release(epoch));
+    }
+
+    /* Books whose counters have seen failed CAS attempts in the current sampling window, hottest first. Striped books
+    stay listed however quiet their stripes are: striping is what took their collisions away. */
+    @Override
+    public List<BookContention> contentionStats() {
+        long window = contentionWindow();
+        contended.values().removeIf(entry -> !entry.isStriped() && entry.contention(window) < REPORT_CONTENTION);
+        return contended.values().stream()
+                .map(entry -> new BookContention(entry.isbn(), entry.book.getTitle(), entry.contention(window), entry.stripeCount()))
+                .sorted(Comparator.comparingInt(BookContention::getContention).reversed())
+                .collect(Collectors.toList());
+    }
+
+    boolean stripe(String isbn) {
+        BookEntry entry = live(isbn);
+        return entry != null && entry.inflate(epochs);
+    }
+
+    int stripeCount(String isbn) {
+        BookEntry entry = live(isbn);
+        return entry == null ? 0 : entry.stripeCount();
+    }
+
+    /* Records CAS collisions on a book and checks it, as a borrow or return that met them would */
+    void contend(String isbn, int collisions) {
+        BookEntry entry = live(isbn);
+        if (entry != null) {
+            entry.addContention(contentionWindow(), collisions);
+            checkContention(entry);
+        }
+    }
+
+    private BookEntry live(String isbn) {
+        BookEntry entry = books.get(Isbn.canonical(isbn));
+        return entry == null || entry.removed ? null : entry;
+    }
+
+    /* Failed CAS attempts are the contention samples: cold books never fail, so they stay on the single field */
+    private void checkContention(BookEntry entry) {
+        int contention = entry.contention(contentionWindow());
+        if (contention >= REPORT_CONTENTION) {
+            contended.putIfAbsent(entry.isbn(), entry);
+            if (contention >= STRIPE_CONTENTION && !entry.isStriped() && entry.inflate(epochs)) {
+                System.out.println("Striping copies of contended book: " + entry.isbn()); //Works as logger
+            }
+        }
+    }
+
+    private long contentionWindow() {
+        return clock.getAsLong() / CONTENTION_WINDOW_NANOS;
+    }
+
+    /* Epoch based reclamation: once no open snapshot can see a replaced entry or a tombstone, drop it. Anything
+    stamped after the current epoch may be needed by a snapshot opened meanwhile, hence the bound. */
+    private void release(long epoch) {
+        epochs.close(epoch);
+        long bound = Math.min(epochs.current(), epochs.oldestOpen());
+        for (int pending = versioned.size(); pending > 0; pending--) {
+            String isbn = versioned.poll();
+            if (isbn == null) {
+                break;
+            }
+            BookEntry entry = books.computeIfPresent(isbn, (key, current) ->
+                    current.removed && current.addedEpoch <= bound ? null : current);
+            if (entry != null && !entry.trim(bound)) {
+                versioned.add(isbn);
+            }
+        }
     }
 }
@@ -0,0 +1,22 @@
+package com.identitye2e.model;
+
+/* Callback for components that keep derived state (caches, counters) in step with the Library.
+   Listeners are invoked synchronously on the mutating thread, so implementations must be cheap and thread safe. */
+public interface LibraryListener {
+
+    default void bookAdded(Book book) {
+    }
+
+    default void bookRemoved(Book book) {
+    }
+
+    default void copiesChanged(Book book, int delta) {
+    }
+
+    /* The copy count moved from one value to the other in a single update. Stores call this form, with the counts from
+       the update itself rather than from book, which may already show a later change. Striped counters (see
+       StripedCopies) only report exact counts when one of them is 0. */
+    default void copiesChanged(Book book, int from, int to) {
+        copiesChanged(book, to - from);
+    }
+}
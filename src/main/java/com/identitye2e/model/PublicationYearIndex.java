@@ -0,0 +1,173 @@
+package com.identitye2e.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+public class PublicationYearIndex {
+    /* Sorted secondary indexes on publicationYear and on (folded author, publicationYear), both ending in the ISBN so
+    keys are unique. Author names are folded when a book is added (see AuthorName), so a query folds only its own
+    argument, once. Author keys also keep the author as given, so checking a live book against its key is a string
+    comparison; only a book whose author was changed since is folded again. Both author strings are interned, so all
+    the books of one author share them, even those whose Book is not on the heap (TieredBookStore). Range scans seek straight to the first key and stop at the end of the range, so a page costs
+    O(log n + page size). Stores keep the index in step inside their per-ISBN compute. */
+    private static final Comparator<Key> ORDER = Comparator.comparing((Key key) -> key.author)
+            .thenComparingInt(key -> key.year)
+            .thenComparing(key -> key.isbn);
+    private static final String ANY_AUTHOR = "";
+
+    private final NavigableSet<Key> byYear = new ConcurrentSkipListSet<>(ORDER);
+    private final NavigableSet<Key> byAuthorYear = new ConcurrentSkipListSet<>(ORDER);
+
+    public void add(Book book) {
+        byYear.add(new Key(ANY_AUTHOR, book.getPublicationYear(), book.getIsbn()));
+        String author = book.getAuthor();
+        byAuthorYear.add(new Key(AuthorName.fold(author).intern(), book.getPublicationYear(), book.getIsbn(),
+                author == null ? null : author.intern()));
+    }
+
+    public void remove(Book book) {
+        byYear.remove(new Key(ANY_AUTHOR, book.getPublicationYear(), book.getIsbn()));
+        byAuthorYear.remove(new Key(AuthorName.fold(book.getAuthor()), book.getPublicationYear(), book.getIsbn()));
+    }
+
+    /* One page of books in the range. The index can briefly lag the store, so every key is checked against the
+    live book (looked up with live, null when gone) before it is returned. Throws IllegalArgumentException
+    on a bad cursor. */
+    public BookPage page(String author, int fromYear, int toYear, String after, int limit, Function<String, Book> live) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        String folded = author == null ? null : AuthorName.fold(author);
+        Key cursor = after == null ? null : Key.fromCursor(after);
+        Iterator<Key> keys = range(folded, fromYear, toYear, cursor);
+        List<Book> page = new ArrayList<>();
+        Key last = null;
+        while (keys.hasNext()) {
+            Key key = keys.next();
+            Book book = live.apply(key.isbn);
+            if (book == null || !key.matches(book)) {
+                continue;
+            }
+            if (page.size() == limit) {
+                return new BookPage(page, last.cursor());
+            }
+            page.add(book);
+            last = key;
+        }
+        return new BookPage(page, null);
+    }
+
+    /* Every live book whose author folds to the same name, in (year, isbn) order; checked as in page */
+    public List<Book> byAuthor(String author, Function<String, Book> live) {
+        List<Book> books = new ArrayList<>();
+        range(AuthorName.fold(author), Integer.MIN_VALUE, Integer.MAX_VALUE, null).forEachRemaining(key -> {
+            Book book = live.apply(key.isbn);
+            if (book != null && key.matches(book)) {
+                books.add(book);
+            }
+        });
+        return books;
+    }
+
+    /* Keys in [fromYear, toYear] in (year, isbn) order, starting after the cursor when one is given. The author is
+    already folded; null scans every author */
+    Iterator<Key> range(String folded, int fromYear, int toYear, Key after) {
+        String prefix = folded == null ? ANY_AUTHOR : folded;
+        NavigableSet<Key> index = folded == null ? byYear : byAuthorYear;
+        Key start = new Key(prefix, fromYear, "");
+        NavigableSet<Key> tail = after != null && ORDER.compare(after.withAuthor(prefix), start) >= 0
+                ? index.tailSet(after.withAuthor(prefix), false)
+                : index.tailSet(start, true);
+        Iterator<Key> keys = tail.iterator();
+        return new Iterator<>() {
+            private Key next = advance();
+
+            private Key advance() {
+                if (keys.hasNext()) {
+                    Key key = keys.next();
+                    if (key.author.equals(prefix) && key.year <= toYear) {
+                        return key;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Key next() {
+                Key current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    static final class Key {
+        final String author;
+        final int year;
+        final String isbn;
+        final String source; // the author as given, on author keys; not part of the key
+
+        Key(String author, int year, String isbn) {
+            this(author, year, isbn, null);
+        }
+
+        Key(String author, int year, String isbn, String source) {
+            this.author = author;
+            this.year = year;
+            this.isbn = isbn;
+            this.source = source;
+        }
+
+        Key withAuthor(String author) {
+            return new Key(author, year, isbn);
+        }
+
+        /* Whether the live book still has the year and author this key was made from */
+        boolean matches(Book book) {
+            if (book.getPublicationYear() != year) {
+                return false;
+            }
+            if (author.equals(ANY_AUTHOR) || Objects.equals(book.getAuthor(), source)) {
+                return true;
+            }
+            return AuthorName.fold(book.getAuthor()).equals(author);
+        }
+
+        String cursor() {
+            return year + ":" + isbn;
+        }
+
+        static Key fromCursor(String cursor) {
+            int separator = cursor.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            try {
+                return new Key(ANY_AUTHOR, Integer.parseInt(cursor.substring(0, separator)), cursor.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && year == key.year && author.equals(key.author) && isbn.equals(key.isbn);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(author, year, isbn);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.identitye2e.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+class StripedCopies {
+    /* Availability counter for contended books. Copies are spread over cache-line padded stripes, each thread starts
+    at its own stripe and only moves on when that one is empty, so concurrent borrows and returns rarely hit the same
+    CAS. The total is the sum of the stripes; each stripe is versioned like any other counter. nonEmpty counts the
+    stripes holding copies and only changes when a stripe empties or refills, so the one take that empties the whole
+    counter, and the one give that refills it, can be told apart without reading every stripe. Failed CAS attempts
+    on the stripes are sampled, as BookEntry samples its single counter, so a striped book still reports contention. */
+    private static final int PADDING = 16;
+    private static final int MAX_STRIPES = 64;
+
+    private final AtomicReferenceArray<CopiesState> cells;
+    private final AtomicInteger nonEmpty;
+    private final int mask;
+    private int collisions;
+
+    StripedCopies(int copies, long epoch) {
+        int stripes = Integer.highestOneBit(Math.min(MAX_STRIPES, Math.max(2, Runtime.getRuntime().availableProcessors())) * 2 - 1);
+        this.cells = new AtomicReferenceArray<>(stripes * PADDING);
+        this.nonEmpty = new AtomicInteger(Math.min(copies, stripes));
+        this.mask = stripes - 1;
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PADDING, new CopiesState(copies / stripes + (i < copies % stripes ? 1 : 0), epoch, null, null));
+        }
+    }
+
+    /* Copies left after taking one, or -1 when there were none. The count is only exact when it is 0: the other
+    stripes are summed after the take. A stripe passed over as empty may be refilled before the sweep ends, so the
+    sweep is repeated until nonEmpty agrees that every stripe is empty. */
+    int take(Epochs epochs) {
+        int start = probe();
+        for (;;) {
+            for (int i = 0; i <= mask; i++) {
+                int index = ((start + i) & mask) * PADDING;
+                CopiesState current = cells.get(index);
+                while (current.value > 0) {
+                    if (cells.compareAndSet(index, current, current.next(current.value - 1, null, epochs))) {
+                        if (current.value == 1 && nonEmpty.decrementAndGet() == 0) {
+                            return 0;
+                        }
+                        return Math.max(1, sum());
+                    }
+                    collisions++;
+                    current = cells.get(index);
+                }
+            }
+            if (nonEmpty.get() == 0) {
+                return -1;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /* Copies after the give; exact when the counter was empty before it */
+    int give(int copies, Epochs epochs) {
+        if (copies == 0) {
+            return sum();
+        }
+        int index = (probe() & mask) * PADDING;
+        CopiesState current = cells.get(index);
+        while (!cells.compareAndSet(index, current, current.next(current.value + copies, null, epochs))) {
+            collisions++;
+            current = cells.get(index);
+        }
+        if (current.value == 0 && nonEmpty.getAndIncrement() == 0) {
+            return copies;
+        }
+        return Math.max(copies + 1, sum());
+    }
+
+    int sum() {
+        int sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += cells.get(i * PADDING).value;
+        }
+        return sum;
+    }
+
+    int copiesAt(long snapshot) {
+        int sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            CopiesState state = cells.get(i * PADDING).at(snapshot);
+            sum += state == null ? 0 : state.value;
+        }
+        return sum;
+    }
+
+    /* Failed CAS attempts since the last call; like the count itself, a sample */
+    int drainCollisions() {
+        int drained = collisions;
+        collisions = 0;
+        return drained;
+    }
+
+    int stripes() {
+        return mask + 1;
+    }
+
+    private static int probe() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) * 0x9E3779B9;
+    }
+}
@@ -0,0 +1,73 @@
+package com.identitye2e.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class TierStats {
+    /* Sizes and traffic of a tiered BookStore since it was opened. Hits count ISBN lookups, borrows and returns by
+    the tier that served them; promotionRate is the share of cold hits that moved the book up to the hot tier. */
+    @JsonProperty("hotBooks")
+    private final int hotBooks;
+    @JsonProperty("hotCapacity")
+    private final int hotCapacity;
+    @JsonProperty("coldBooks")
+    private final int coldBooks;
+    @JsonProperty("coldBytes")
+    private final long coldBytes;
+    @JsonProperty("hotHits")
+    private final long hotHits;
+    @JsonProperty("coldHits")
+    private final long coldHits;
+    @JsonProperty("promotions")
+    private final long promotions;
+    @JsonProperty("demotions")
+    private final long demotions;
+
+    public TierStats(int hotBooks, int hotCapacity, int coldBooks, long coldBytes, long hotHits, long coldHits,
+                     long promotions, long demotions) {
+        this.hotBooks = hotBooks;
+        this.hotCapacity = hotCapacity;
+        this.coldBooks = coldBooks;
+        this.coldBytes = coldBytes;
+        this.hotHits = hotHits;
+        this.coldHits = coldHits;
+        this.promotions = promotions;
+        this.demotions = demotions;
+    }
+
+    public int getHotBooks() {
+        return hotBooks;
+    }
+
+    public int getHotCapacity() {
+        return hotCapacity;
+    }
+
+    public int getColdBooks() {
+        return coldBooks;
+    }
+
+    public long getColdBytes() {
+        return coldBytes;
+    }
+
+    public long getHotHits() {
+        return hotHits;
+    }
+
+    public long getColdHits() {
+        return coldHits;
+    }
+
+    public long getPromotions() {
+        return promotions;
+    }
+
+    public long getDemotions() {
+        return demotions;
+    }
+
+    @JsonProperty("promotionRate")
+    public double getPromotionRate() {
+        return coldHits == 0 ? 0 : (double) promotions / coldHits;
+    }
+}
@@ -0,0 +1,62 @@
+package com.identitye2e.reconciliation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Discrepancy {
+    public enum Kind {
+        /* The catalogue count differs from the stock count */
+        COUNT_MISMATCH,
+        /* Counted on the shelves but not in the catalogue */
+        NOT_IN_CATALOGUE,
+        /* In the catalogue but not counted */
+        NOT_IN_STOCK_FILE
+    }
+
+    @JsonProperty("kind")
+    private final Kind kind;
+    @JsonProperty("isbn")
+    private final String isbn;
+    @JsonProperty("title")
+    private final String title;
+    @JsonProperty("recorded")
+    private final Integer recorded;
+    @JsonProperty("counted")
+    private final Integer counted;
+    @JsonProperty("corrected")
+    private final boolean corrected;
+
+    public Discrepancy(Kind kind, String isbn, String title, Integer recorded, Integer counted, boolean corrected) {
+        this.kind = kind;
+        this.isbn = isbn;
+        this.title = title;
+        this.recorded = recorded;
+        this.counted = counted;
+        this.corrected = corrected;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Integer getRecorded() {
+        return recorded;
+    }
+
+    public Integer getCounted() {
+        return counted;
+    }
+
+    public boolean isCorrected() {
+        return corrected;
+    }
+}
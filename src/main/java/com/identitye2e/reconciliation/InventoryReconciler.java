@@ -0,0 +1,223 @@
+package com.identitye2e.reconciliation;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.Isbn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Component
+public class InventoryReconciler {
+    /* Compares the catalogue's copy counts with a physical stock count and corrects the ones that drifted, without
+    stopping borrows and returns. The catalogue is streamed in chunks to a small pool of low priority workers whose
+    size and duty cycle keep the run within library.reconciliation.cpu-budget of the machine. A correction is a
+    compare-and-set on the one book (BookStore.correctCopies): when a borrow or return gets there first the book is
+    re-read and compared again, so live traffic is never overwritten. Only one run goes at a time. */
+    static final int MAX_ATTEMPTS = 3;
+
+    private final BookStore library;
+    private final String stockFile;
+    private final int chunkSize;
+    private final double cpuBudget;
+    private final boolean correct;
+    private final int maxReported;
+    private final AtomicBoolean running;
+    private final AtomicReference<ReconciliationReport> latest;
+
+    @Autowired
+    public InventoryReconciler(BookStore library,
+                               @Value("${library.reconciliation.stock-file:}") String stockFile,
+                               @Value("${library.reconciliation.chunk-size:1000}") int chunkSize,
+                               @Value("${library.reconciliation.cpu-budget:0.25}") double cpuBudget,
+                               @Value("${library.reconciliation.correct:true}") boolean correct,
+                               @Value("${library.reconciliation.max-reported:1000}") int maxReported) {
+        this.library = library;
+        this.stockFile = stockFile;
+        this.chunkSize = chunkSize;
+        this.cpuBudget = cpuBudget;
+        this.correct = correct;
+        this.maxReported = maxReported;
+        this.running = new AtomicBoolean();
+        this.latest = new AtomicReference<>();
+    }
+
+    @Scheduled(cron = "${library.reconciliation.cron:0 0 3 * * *}")
+    public void reconcileStockFile() {
+        if (stockFile.isBlank()) {
+            return;
+        }
+        try {
+            Map<String, Integer> stock = StockFile.read(Path.of(stockFile));
+            ReconciliationReport report = reconcile(stockFile, stock);
+            if (report == null) {
+                System.out.println("Skipped reconciliation with " + stockFile + ": a run is in progress"); //Works as logger
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Cannot read stock file " + stockFile + ": " + e.getMessage()); //Works as logger
+        }
+    }
+
+    /* Runs on the calling thread; null when another run is in progress */
+    public ReconciliationReport reconcile(String source, Map<String, Integer> stock) {
+        ReconciliationReport report = begin(source);
+        if (report != null) {
+            run(report, stock);
+        }
+        return report;
+    }
+
+    /* Runs in the background and returns the report of the started run at once; null when another run is in progress */
+    public ReconciliationReport start(String source, Map<String, Integer> stock) {
+        ReconciliationReport report = begin(source);
+        if (report != null) {
+            Thread runner = new Thread(() -> run(report, stock), "reconciliation");
+            runner.setDaemon(true);
+            runner.start();
+        }
+        return report;
+    }
+
+    /* Latest run, finished or not; null before the first one */
+    public ReconciliationReport latest() {
+        return latest.get();
+    }
+
+    private ReconciliationReport begin(String source) {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        ReconciliationReport report = new ReconciliationReport(source, maxReported);
+        latest.set(report);
+        return report;
+    }
+
+    private void run(ReconciliationReport report, Map<String, Integer> stock) {
+        int available = Runtime.getRuntime().availableProcessors();
+        int workers = Math.max(1, (int) (available * cpuBudget));
+        // Each worker's share of a core: below 1 it idles in proportion to the time it worked
+        double share = Math.min(1.0, available * cpuBudget / workers);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "reconciliation-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        Semaphore inFlight = new Semaphore(workers * 2);
+        Set<String> catalogued = ConcurrentHashMap.newKeySet();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long started = System.nanoTime();
+        try {
+            Iterator<Book> books = library.books().iterator();
+            while (books.hasNext() && failure.get() == null) {
+                List<Book> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && books.hasNext()) {
+                    chunk.add(books.next());
+                }
+                inFlight.acquire();
+                report.chunkSubmitted();
+                pool.execute(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        verify(chunk, stock, catalogued, report);
+                        report.chunkDone(chunk.size());
+                        throttle(System.nanoTime() - start, share);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            for (Map.Entry<String, Integer> counted : stock.entrySet()) {
+                // A book added after the listing went past it is not missing
+                if (!catalogued.contains(counted.getKey()) && library.findBookByISBN(counted.getKey()).isEmpty()) {
+                    report.add(new Discrepancy(Discrepancy.Kind.NOT_IN_CATALOGUE, counted.getKey(), null, null, counted.getValue(), false));
+                }
+            }
+            report.completed();
+            System.out.println("Reconciled " + report.getBooksChecked() + " books with " + report.getSource() + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms: "
+                    + report.getDiscrepancyCount() + " discrepancies, " + report.getCorrections() + " corrected"); //Works as logger
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.failed(e);
+        } catch (Throwable e) {
+            report.failed(e);
+            System.out.println("Reconciliation with " + report.getSource() + " failed: " + e.getMessage()); //Works as logger
+        } finally {
+            pool.shutdownNow();
+            running.set(false);
+        }
+    }
+
+    private void verify(List<Book> chunk, Map<String, Integer> stock, Set<String> catalogued, ReconciliationReport report) {
+        for (Book book : chunk) {
+            String isbn = Isbn.canonical(book.getIsbn());
+            catalogued.add(isbn);
+            Integer counted = stock.get(isbn);
+            if (counted == null) {
+                report.add(new Discrepancy(Discrepancy.Kind.NOT_IN_STOCK_FILE, book.getIsbn(), book.getTitle(), book.getAvailableCopies(), null, false));
+            } else if (book.getAvailableCopies() != counted) {
+                reconcile(book, counted, report);
+            }
+        }
+    }
+
+    /* The listed book may be stale by now: each attempt compares against the count it last read */
+    private void reconcile(Book book, int counted, ReconciliationReport report) {
+        Book current = book;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            int recorded = current.getAvailableCopies();
+            if (recorded == counted) {
+                return;
+            }
+            if (!correct) {
+                break;
+            }
+            if (library.correctCopies(current.getIsbn(), recorded, counted)) {
+                report.add(new Discrepancy(Discrepancy.Kind.COUNT_MISMATCH, current.getIsbn(), current.getTitle(), recorded, counted, true));
+                return;
+            }
+            current = library.findBookByISBN(current.getIsbn()).orElse(null);
+            if (current == null) {
+                return;
+            }
+        }
+        report.add(new Discrepancy(Discrepancy.Kind.COUNT_MISMATCH, current.getIsbn(), current.getTitle(), current.getAvailableCopies(), counted, false));
+    }
+
+    private static void throttle(long worked, double share) {
+        if (share >= 1.0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep((long) (worked * (1 - share) / share));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
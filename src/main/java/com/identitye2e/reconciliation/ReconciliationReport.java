@@ -0,0 +1,130 @@
+package com.identitye2e.reconciliation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReconciliationReport {
+    /* Progress and outcome of one reconciliation run. Updated by the workers as chunks complete, so it can be read
+    while the run is going; only the first maxReported discrepancies are kept, the counts cover all of them. */
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String source;
+    private final Instant startedAt;
+    private final int maxReported;
+    private final AtomicInteger booksChecked;
+    private final AtomicInteger chunksDone;
+    private final AtomicInteger discrepancyCount;
+    private final AtomicInteger corrections;
+    private final Queue<Discrepancy> discrepancies;
+    private volatile int chunks;
+    private volatile Status status;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public ReconciliationReport(String source, int maxReported) {
+        this.source = source;
+        this.startedAt = Instant.now();
+        this.maxReported = maxReported;
+        this.booksChecked = new AtomicInteger();
+        this.chunksDone = new AtomicInteger();
+        this.discrepancyCount = new AtomicInteger();
+        this.corrections = new AtomicInteger();
+        this.discrepancies = new ConcurrentLinkedQueue<>();
+        this.status = Status.RUNNING;
+    }
+
+    @JsonProperty("source")
+    public String getSource() {
+        return source;
+    }
+
+    @JsonProperty("status")
+    public Status getStatus() {
+        return status;
+    }
+
+    @JsonProperty("startedAt")
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    @JsonProperty("finishedAt")
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    @JsonProperty("booksChecked")
+    public int getBooksChecked() {
+        return booksChecked.get();
+    }
+
+    /* Chunks handed to the workers so far; final once the catalogue has been listed */
+    @JsonProperty("chunks")
+    public int getChunks() {
+        return chunks;
+    }
+
+    @JsonProperty("chunksDone")
+    public int getChunksDone() {
+        return chunksDone.get();
+    }
+
+    @JsonProperty("discrepancyCount")
+    public int getDiscrepancyCount() {
+        return discrepancyCount.get();
+    }
+
+    @JsonProperty("corrections")
+    public int getCorrections() {
+        return corrections.get();
+    }
+
+    @JsonProperty("discrepancies")
+    public List<Discrepancy> getDiscrepancies() {
+        return new ArrayList<>(discrepancies);
+    }
+
+    @JsonProperty("error")
+    public String getError() {
+        return error;
+    }
+
+    void chunkSubmitted() {
+        chunks++;
+    }
+
+    void chunkDone(int books) {
+        booksChecked.addAndGet(books);
+        chunksDone.incrementAndGet();
+    }
+
+    void add(Discrepancy discrepancy) {
+        if (discrepancyCount.incrementAndGet() <= maxReported) {
+            discrepancies.add(discrepancy);
+        }
+        if (discrepancy.isCorrected()) {
+            corrections.incrementAndGet();
+        }
+    }
+
+    void completed() {
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void failed(Throwable e) {
+        error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+}
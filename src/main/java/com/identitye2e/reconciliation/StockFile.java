@@ -0,0 +1,62 @@
+package com.identitye2e.reconciliation;
+
+import com.identitye2e.model.Isbn;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class StockFile {
+    /* A physical stock count: one "isbn,copies" line per shelf, with an optional header line and # comments.
+    Copies of an ISBN that is counted on several shelves are added up. ISBNs are keyed in canonical form, so the
+    count can be taken with whatever form of the ISBN is printed on the book. */
+
+    private StockFile() {
+    }
+
+    public static Map<String, Integer> read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    /* Throws IllegalArgumentException naming the first malformed line: a partly read count must not drive corrections */
+    public static Map<String, Integer> parse(Reader reader) throws IOException {
+        Map<String, Integer> stock = new HashMap<>();
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int comma = line.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Stock line " + number + " is not isbn,copies: " + line);
+            }
+            String isbn = line.substring(0, comma).trim();
+            String copies = line.substring(comma + 1).trim();
+            int count;
+            try {
+                count = Integer.parseInt(copies);
+            } catch (NumberFormatException e) {
+                if (number == 1) {
+                    continue; // header
+                }
+                throw new IllegalArgumentException("Stock line " + number + " has no copy count: " + line);
+            }
+            if (isbn.isEmpty() || count < 0) {
+                throw new IllegalArgumentException("Stock line " + number + " is not isbn,copies: " + line);
+            }
+            stock.merge(Isbn.canonical(isbn), count, Integer::sum);
+        }
+        return stock;
+    }
+}
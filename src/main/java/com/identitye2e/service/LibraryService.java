@@ -1,6 +1,10 @@
 package com.identitye2e.service;
 
 import com.identitye2e.model.Book;
+import com.identitye2e.model.BookBatch;
+import com.identitye2e.model.BookPage;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface LibraryService {
@@ -11,8 +15,12 @@ public interface LibraryService {
 
     Book findBookByISBN(String isbn);
 
+    BookBatch findBooksByISBNs(Collection<String> isbns);
+
     List<Book> findBooksByAuthor(String author);
 
+    BookPage findBooksByPublicationYear(String author, int fromYear, int toYear, String after, int limit);
+
     boolean borrowBook(String isbn);
 
     boolean returnBook(String isbn);
@@ -1,67 +1,138 @@
 package com.identitye2e.service;
 
+import com.identitye2e.cache.CoalescingCache;
 import com.identitye2e.exceptions.BookNotFoundException;
 import com.identitye2e.exceptions.InsufficientCopiesException;
 import com.identitye2e.model.Book;
-import com.identitye2e.model.Library;
+import com.identitye2e.model.BookBatch;
+import com.identitye2e.model.BookPage;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.Isbn;
+import com.identitye2e.tracing.OperationTracer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class LibraryServiceImpl implements LibraryService {
 
-    private final Library library;
+    private final BookStore library;
+    private final CacheManager cacheManager;
+    private final OperationTracer tracer;
 
-    public LibraryServiceImpl(Library library) {
+    public LibraryServiceImpl(BookStore library, CacheManager cacheManager, OperationTracer tracer) {
         this.library = library;
+        this.cacheManager = cacheManager;
+        this.tracer = tracer;
     }
 
     @Override
     public void addBook(Book book) {
         if (book != null) {
-            library.addBook(book);
+            tracer.store("addBook", () -> library.addBook(book));
             System.out.println("Book added:" + book.getIsbn()); //Works as logger
         }
     }
     @Override
-    @CacheEvict(value = "books", key = "#isbn")
+    @CacheEvict(value = "books", key = "T(com.identitye2e.model.Isbn).canonical(#isbn)")
     public void removeBook(String isbn) {
-        Optional<Book> book = library.findBookByISBN(isbn);
+        Optional<Book> book = tracer.store("findBookByISBN", () -> library.findBookByISBN(isbn));
         if (book.isEmpty()) {
             throw new BookNotFoundException("Book with ISBN " + isbn + " not found");
         }
-        library.removeBook(isbn);
+        tracer.store("removeBook", () -> library.removeBook(isbn));
         System.out.println("Book removed: " + isbn); //Works as logger
     }
 
     @Override
-    @Cacheable(value = "books", key = "#isbn")
+    @Cacheable(value = "books", key = "T(com.identitye2e.model.Isbn).canonical(#isbn)", sync = true)
     public Book findBookByISBN(String isbn) {
         System.out.println("Fetching book with ISBN: " +  isbn); //Logging here
-        Optional<Book> optionalBook = library.findBookByISBN(isbn);
+        Optional<Book> optionalBook = tracer.cacheMiss("findBookByISBN", isbn, 1, () -> library.findBookByISBN(isbn));
 
         return optionalBook.orElseThrow(() ->
                 new BookNotFoundException("Book with ISBN " + isbn + " not found")
         );
     }
 
-    @Cacheable(value = "books", key = "#author")
+    /* Misses are loaded in one store call. With the CoalescingCache they are loaded through getAll, which installs
+    in-flight entries first, so a borrow that evicts a key while the batch is loading keeps the batch's copy out of
+    the cache. Other caches are only read. */
+    @Override
+    public BookBatch findBooksByISBNs(Collection<String> isbns) {
+        Set<String> keys = new LinkedHashSet<>(isbns);
+        Cache cache = cacheManager.getCache("books");
+        Map<String, Book> resolved = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String isbn : keys) {
+            Cache.ValueWrapper cached = cache != null ? cache.get(Isbn.canonical(isbn)) : null;
+            if (cached != null && cached.get() instanceof Book book) {
+                resolved.put(isbn, book);
+            } else {
+                misses.add(isbn);
+            }
+        }
+        if (!misses.isEmpty()) {
+            if (cache instanceof CoalescingCache coalescing) {
+                Set<String> canonical = new LinkedHashSet<>();
+                misses.forEach(isbn -> canonical.add(Isbn.canonical(isbn)));
+                Map<String, Object> loaded = coalescing.getAll(canonical, batch ->
+                        tracer.cacheMiss("findBooksByISBNs", batch.get(0), batch.size(), () -> library.findBooksByISBNs(batch)));
+                for (String isbn : misses) {
+                    if (loaded.get(Isbn.canonical(isbn)) instanceof Book book) {
+                        resolved.put(isbn, book);
+                    }
+                }
+            } else {
+                resolved.putAll(tracer.cacheMiss("findBooksByISBNs", misses.get(0), misses.size(),
+                        () -> library.findBooksByISBNs(misses)));
+            }
+        }
+        System.out.println("Fetched " + keys.size() + " books by ISBN, " + misses.size() + " cache misses"); //Logging here
+
+        List<Book> found = new ArrayList<>(resolved.size());
+        List<String> missing = new ArrayList<>();
+        for (String isbn : keys) {
+            Book book = resolved.get(isbn);
+            if (book != null) {
+                found.add(book);
+            } else {
+                missing.add(isbn);
+            }
+        }
+        return new BookBatch(found, missing);
+    }
+
+    @Cacheable(value = "books", key = "T(com.identitye2e.model.AuthorName).fold(#author)", sync = true)
     @Override
     public List<Book> findBooksByAuthor(String author) {
-        List<Book> books = library.findBooksByAuthor(author);
+        List<Book> books = tracer.cacheMiss("findBooksByAuthor", author, 1, () -> library.findBooksByAuthor(author));
         if (books.isEmpty()) {
             throw new BookNotFoundException("No books found for author: " + author);
         }
         return books;
     }
 
+    @Override
+    public BookPage findBooksByPublicationYear(String author, int fromYear, int toYear, String after, int limit) {
+        return tracer.store("findBooksByPublicationYear",
+                () -> library.findBooksByPublicationYear(author, fromYear, toYear, after, limit));
+    }
+
     @Override
     public boolean borrowBook(String isbn) {
-        Optional<Book> optionalBook = library.findBookByISBN(isbn);
+        Optional<Book> optionalBook = tracer.store("findBookByISBN", () -> library.findBookByISBN(isbn));
 
         Book book = optionalBook.orElseThrow(() ->
                 new BookNotFoundException("Book with ISBN " + isbn + " not found")
@@ -69,15 +140,15 @@ public class LibraryServiceImpl implements LibraryService {
         if (book.getAvailableCopies() <= 0) {
             throw new InsufficientCopiesException("No available copies for book with ISBN " + isbn);
         }
-        return library.borrowBook(isbn);
+        return tracer.store("borrowBook", () -> library.borrowBook(isbn));
     }
 
     @Override
     public boolean returnBook(String isbn) {
-        Optional<Book> optionalBook = library.findBookByISBN(isbn);
+        Optional<Book> optionalBook = tracer.store("findBookByISBN", () -> library.findBookByISBN(isbn));
         Book book = optionalBook.orElseThrow(() ->
                 new BookNotFoundException("Book with ISBN " + isbn + " not found")
         );
-        return library.returnBook(book.getIsbn());
+        return tracer.store("returnBook", () -> library.returnBook(book.getIsbn()));
     }
 }
@@ -0,0 +1,18 @@
+package com.identitye2e.startup;
+
+import com.identitye2e.model.LibraryListener;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    /* Listeners register themselves with the BookStore in their constructors and nothing else depends on some of
+    them, so under spring.main.lazy-initialization they would never be created and their caches and counters would
+    miss every change. They are always created eagerly. */
+    @Bean
+    public static LazyInitializationExcludeFilter libraryListenersExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(LibraryListener.class);
+    }
+}
@@ -0,0 +1,106 @@
+package com.identitye2e.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class WarmUpRunner implements ApplicationRunner {
+    /* Sends lookups to the application's own port so the whole request path (filters, DispatcherServlet, argument
+    resolution, the books cache and tracing proxies, the response cache and Jackson) is JIT compiled before the
+    instance takes traffic. Runners complete after the web server has started but before Spring Boot moves readiness
+    to ACCEPTING_TRAFFIC, so the readiness probe stays red until the warm-up is done. Only lookups are sent, so the
+    store is never written: they go to a sample of the books already stored, or to an ISBN and author that are not
+    there (the 404 paths) when the store is empty. */
+    private static final int SAMPLE_BOOKS = 16;
+    private static final String MISSING_ISBN = "warm-up-0000000000";
+    private static final String MISSING_AUTHOR = "warm-up";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ApplicationContext context;
+    private final BookStore library;
+    private final ObjectMapper objectMapper;
+    private final String contextPath;
+    private final int iterations;
+
+    public WarmUpRunner(ApplicationContext context, BookStore library, ObjectMapper objectMapper,
+                        @Value("${server.servlet.context-path:}") String contextPath,
+                        @Value("${library.warm-up.iterations:0}") int iterations) {
+        this.context = context;
+        this.library = library;
+        this.objectMapper = objectMapper;
+        this.contextPath = contextPath;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (iterations <= 0) {
+            return;
+        }
+        if (!(context instanceof WebServerApplicationContext server) || server.getWebServer() == null) {
+            System.out.println("Warm up skipped: no web server to send requests to"); //Works as logger
+            return;
+        }
+        List<Book> sample = library.books().limit(SAMPLE_BOOKS).collect(Collectors.toList());
+        List<String> isbns = new ArrayList<>();
+        sample.forEach(book -> isbns.add(book.getIsbn()));
+        String author = sample.isEmpty() ? MISSING_AUTHOR : sample.get(0).getAuthor();
+        if (isbns.isEmpty()) {
+            isbns.add(MISSING_ISBN);
+        }
+        String base = "http://localhost:" + server.getWebServer().getPort() + contextPath + "/api/library";
+        byte[] batch = objectMapper.writeValueAsBytes(isbns);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(TIMEOUT).build();
+
+        long start = System.nanoTime();
+        int failed = 0;
+        try {
+            for (int i = 0; i < iterations; i++) {
+                String isbn = isbns.get(i % isbns.size());
+                failed += send(client, get(base + "/findBookByIsbn?isbn=" + encode(isbn)));
+                failed += send(client, HttpRequest.newBuilder(URI.create(base + "/findBooksByIsbns")).timeout(TIMEOUT)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(batch)).build());
+                failed += send(client, get(base + "/findBooksByAuthor?author=" + encode(author)));
+                failed += send(client, get(base + "/findBooksByYear?fromYear=0&toYear=9999&limit=10"));
+            }
+        } catch (IOException e) {
+            System.out.println("Warm up stopped: " + e.getMessage()); //Works as logger
+            return;
+        }
+        System.out.println("Warm up finished: " + iterations + " iterations in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms, " + failed + " failed requests"); //Works as logger
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(TIMEOUT).header("Accept-Encoding", "gzip").GET().build();
+    }
+
+    /* 1 when the server answered with a 5xx */
+    private static int send(HttpClient client, HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 500 ? 1 : 0;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
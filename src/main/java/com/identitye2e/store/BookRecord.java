@@ -0,0 +1,98 @@
+package com.identitye2e.store;
+
+import com.identitye2e.model.Book;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+final class BookRecord {
+    /* One entry of the log: [int payload length][int CRC32 of payload][payload]. The payload is a type byte followed
+    by the ISBN and, for a put, the rest of the book. A zero length marks the unwritten tail of a segment. */
+    static final int HEADER_BYTES = 8;
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    final byte type;
+    final String isbn;
+    final Book book;
+
+    private BookRecord(byte type, String isbn, Book book) {
+        this.type = type;
+        this.isbn = isbn;
+        this.book = book;
+    }
+
+    static byte[] put(Book book) {
+        return frame(PUT, book.getIsbn(), book);
+    }
+
+    static byte[] delete(String isbn) {
+        return frame(DELETE, isbn, null);
+    }
+
+    static BookRecord decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte type = in.readByte();
+            String isbn = in.readUTF();
+            if (type == DELETE) {
+                return new BookRecord(type, isbn, null);
+            }
+            String title = readNullable(in);
+            String author = readNullable(in);
+            int publicationYear = in.readInt();
+            int availableCopies = in.readInt();
+            return new BookRecord(type, isbn, new Book(isbn, title, author, publicationYear, availableCopies));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt book record", e);
+        }
+    }
+
+    static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] frame(byte type, String isbn, Book book) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeUTF(isbn);
+            if (book != null) {
+                writeNullable(out, book.getTitle());
+                writeNullable(out, book.getAuthor());
+                out.writeInt(book.getPublicationYear());
+                out.writeInt(book.getAvailableCopies());
+            }
+        } catch (UTFDataFormatException e) {
+            // writeUTF stores a 16 bit length
+            throw new IllegalArgumentException("Book " + isbn + " has a field longer than 65535 bytes", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt(checksum(payload))
+                .put(payload)
+                .array();
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.identitye2e.store;
+
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.Library;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class BookStoreConfig {
+
+    /* The engine is picked here, when the bean is created, rather than by bean conditions on the engines: the
+    fast-startup build evaluates bean conditions once at build time, so library.store would be ignored at runtime */
+    @Bean
+    public BookStore bookStore(@Value("${library.store:memory}") String store,
+                               @Value("${library.store.disk.directory:data/books}") Path diskDirectory,
+                               @Value("${library.store.disk.segment-bytes:67108864}") int diskSegmentBytes,
+                               @Value("${library.store.tiered.hot-capacity:10000}") int hotCapacity,
+                               @Value("${library.store.tiered.cold-directory:}") String coldDirectory,
+                               @Value("${library.store.tiered.segment-bytes:67108864}") int coldSegmentBytes) {
+        switch (store) {
+            case "memory":
+                return new Library();
+            case "disk":
+                return new LogStructuredBookStore(diskDirectory, diskSegmentBytes);
+            case "tiered":
+                return new TieredBookStore(hotCapacity, coldDirectory, coldSegmentBytes);
+            default:
+                throw new IllegalArgumentException("library.store must be memory, disk or tiered, not " + store);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.identitye2e.store;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.Isbn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+final class ColdTier implements AutoCloseable {
+    /* Serialized books that were demoted out of the heap, as BookRecord puts in memory-mapped scratch segments. The
+    book bytes live in the page cache, which the kernel can write back and drop under memory pressure. The tier keeps
+    no index: a book's address (segment id and offset, packed into a long) is held by its owner, and compaction asks
+    the owner to move each record it finds. The tier is a cache of the store's state, not a log: it is never
+    replayed, so segments are cleared when it is opened and deleted when it is closed. Rolled segments that are
+    mostly superseded are compacted as in LogStructuredBookStore, on a background thread of the tier's own.
+    Owners serialise put, replace, remove and move per book; get may run at any time. */
+    static final long NONE = 0; // segment ids start at 1, so no record has this address
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Owner owner;
+    private final NavigableMap<Long, Segment> segments;
+    private final AtomicInteger books;
+    private final Object appendLock;
+    private final AtomicBoolean compactionDue;
+    private final AtomicBoolean compactionQueued;
+    private final ExecutorService compactor;
+    private volatile Segment active;
+
+    ColdTier(Path directory, int segmentBytes, Owner owner) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.owner = owner;
+        this.segments = new ConcurrentSkipListMap<>();
+        this.books = new AtomicInteger();
+        this.appendLock = new Object();
+        this.compactionDue = new AtomicBoolean();
+        this.compactionQueued = new AtomicBoolean();
+        this.compactor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "cold-tier-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Files.createDirectories(directory);
+            deleteSegments();
+            active = Segment.create(directory, 1, segmentBytes);
+            segments.put(active.id, active);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open cold tier in " + directory, e);
+        }
+    }
+
+    /* Address of the book's new record */
+    long put(Book book) {
+        long address = append(BookRecord.put(book));
+        books.incrementAndGet();
+        return address;
+    }
+
+    /* Writes a new version of a book already in the tier; returns its address */
+    long replace(long address, Book book) {
+        long replaced = append(BookRecord.put(book));
+        release(address);
+        return replaced;
+    }
+
+    /* Null when the segment has been compacted away; the owner then holds the record's new address */
+    Book get(long address) {
+        Segment segment = segments.get(address >>> 32);
+        if (segment == null) {
+            return null;
+        }
+        int offset = (int) address;
+        return segment.record(offset, segment.size(offset)).book;
+    }
+
+    void remove(long address) {
+        release(address);
+        books.decrementAndGet();
+    }
+
+    /* Copies a record out of a segment being compacted; returns its new address */
+    long move(long address) {
+        Segment segment = segments.get(address >>> 32);
+        int offset = (int) address;
+        long moved = append(segment.read(offset, segment.size(offset)));
+        release(address);
+        return moved;
+    }
+
+    int size() {
+        return books.get();
+    }
+
+    long bytes() {
+        return segments.values().stream().mapToLong(segment -> segment.liveBytes.get()).sum();
+    }
+
+    /* Hands compaction to the background thread; it takes index locks itself, so never call this under one */
+    void maybeCompact() {
+        if (!compactionDue.get() || !compactionQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactor.execute(() -> {
+                compactionQueued.set(false);
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    System.out.println("Cold tier compaction in " + directory + " failed: " + e.getMessage()); //Works as logger
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            compactionQueued.set(false);
+        }
+    }
+
+    synchronized void compact() {
+        compactionDue.set(false);
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.liveBytes.get() < segment.capacity() * LogStructuredBookStore.COMPACT_BELOW_LIVE_RATIO) {
+                compact(segment);
+            }
+        }
+    }
+
+    /* Segments once the compaction already handed to the background thread has run */
+    int segmentCount() throws InterruptedException, ExecutionException {
+        compactor.submit(() -> { }).get();
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            segments.clear();
+            books.set(0);
+            deleteSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot clear cold tier in " + directory, e);
+        }
+    }
+
+    private long append(byte[] record) {
+        synchronized (appendLock) {
+            int offset = active.append(record);
+            if (offset < 0) {
+                roll();
+                offset = active.append(record);
+                if (offset < 0) {
+                    throw new IllegalArgumentException("Record of " + record.length + " bytes does not fit in a segment");
+                }
+            }
+            active.liveBytes.addAndGet(record.length);
+            return active.id << 32 | offset;
+        }
+    }
+
+    private void release(long address) {
+        Segment segment = segments.get(address >>> 32);
+        if (segment != null) {
+            segment.liveBytes.addAndGet(-segment.size((int) address));
+        }
+    }
+
+    private void roll() {
+        try {
+            Segment next = Segment.create(directory, active.id + 1, segmentBytes);
+            segments.put(next.id, next);
+            active = next;
+            compactionDue.set(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll cold segment in " + directory, e);
+        }
+    }
+
+    /* Nothing is replayed, so there are no deletes to carry forward: moving the live puts is enough. The owner skips
+    records it no longer points at. The segment is dropped only once every live record has moved, so a reader that
+    finds it gone knows to look up the new address. */
+    private void compact(Segment segment) {
+        segment.scan(segment.capacity(), (offset, length, record) ->
+                owner.relocate(Isbn.canonical(record.isbn), segment.id << 32 | offset));
+        segments.remove(segment.id);
+        segment.delete();
+    }
+
+    private void deleteSegments() throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) listing::iterator) {
+                if (file.getFileName().toString().matches("segment-\\d+\\.log")) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    interface Owner {
+        /* Called by compaction for each record in a segment it is emptying. If the book's cold copy is still at that
+        address, the owner calls move under its own lock for the book and keeps the new address. */
+        void relocate(String isbn, long address);
+    }
+}
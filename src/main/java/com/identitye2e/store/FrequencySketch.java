@@ -0,0 +1,92 @@
+package com.identitye2e.store;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+final class FrequencySketch {
+    /* TinyLFU popularity estimate: a count-min sketch of 4-bit counters, sixteen to a long, four counters per key.
+    Once sampleSize increments have been counted every counter is halved, so the estimate follows recent traffic
+    rather than all-time totals. Counters saturate at 15. Updates are a single CAS that is dropped when it loses a
+    race: the sketch is an estimate, and a few lost increments do not change which keys look hot. */
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long HALVE_MASK = 0x7777777777777777L;
+
+    private final AtomicLongArray table;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions;
+    private final AtomicBoolean resetting;
+
+    FrequencySketch(int expectedKeys) {
+        int width = Integer.highestOneBit(Math.max(16, expectedKeys) * 2 - 1);
+        this.table = new AtomicLongArray(width);
+        this.mask = width - 1;
+        this.sampleSize = 10 * Math.max(16, expectedKeys);
+        this.additions = new AtomicInteger();
+        this.resetting = new AtomicBoolean();
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            frequency = Math.min(frequency, counter(table.get(indexOf(hash, i)), shift(hash, i)));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int shift = shift(hash, i);
+            long word = table.get(index);
+            if (counter(word, shift) < 15 && table.compareAndSet(index, word, word + (1L << shift))) {
+                added = true;
+            }
+        }
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            halve();
+        }
+    }
+
+    private void halve() {
+        if (!resetting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int i = 0; i < table.length(); i++) {
+                long word = table.get(i);
+                while (!table.compareAndSet(i, word, (word >>> 1) & HALVE_MASK)) {
+                    word = table.get(i);
+                }
+            }
+            additions.set(additions.get() / 2);
+        } finally {
+            resetting.set(false);
+        }
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & mask;
+    }
+
+    /* Each key uses one of four counters in each of its words, picked by a different byte of the hash */
+    private static int shift(int hash, int i) {
+        return ((i << 2) + ((hash >>> (i << 3)) & 3)) << 2;
+    }
+
+    private static int counter(long word, int shift) {
+        return (int) (word >>> shift) & 0xF;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,420 @@
+package com.identitye2e.store;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookPage;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.CatalogueSnapshot;
+import com.identitye2e.model.Isbn;
+import com.identitye2e.model.LibraryListener;
+import com.identitye2e.model.PublicationYearIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class LogStructuredBookStore implements BookStore {
+    /* Embedded disk engine for catalogues larger than the heap. Every mutation appends a record to the active
+    memory-mapped segment; the only state kept in memory is the canonical ISBN -> record location index and the
+    publication year index, both rebuilt by replaying the segments on startup. Segments are rolled at a fixed size,
+    and a rolled segment that has become mostly dead records is compacted by re-appending its live records and
+    deleting it. Compaction runs on one background thread of the store's own; requests only hand it the work.
+    Writes reach the page cache immediately and the disk when a segment is rolled, on flush() and on close().
+    Compaction forces the records it moved before deleting the segment they came from.
+    Titles, authors and ISBNs are limited to 65535 bytes of modified UTF-8 each by the record format. */
+    static final double COMPACT_BELOW_LIVE_RATIO = 0.5;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Map<String, Location> index;
+    private final NavigableMap<Long, Segment> segments;
+    private final PublicationYearIndex yearIndex;
+    private final List<LibraryListener> listeners;
+    private final Object appendLock;
+    private final Object rollLock;
+    private final Object compactLock;
+    private final AtomicLong sequence;
+    private final AtomicBoolean compactionDue;
+    private final AtomicBoolean compactionQueued;
+    private final ExecutorService compactor;
+    private volatile Segment active;
+
+    public LogStructuredBookStore(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.index = new ConcurrentHashMap<>();
+        this.segments = new ConcurrentSkipListMap<>();
+        this.yearIndex = new PublicationYearIndex();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.appendLock = new Object();
+        this.rollLock = new Object();
+        this.compactLock = new Object();
+        this.sequence = new AtomicLong();
+        this.compactionDue = new AtomicBoolean();
+        this.compactionQueued = new AtomicBoolean();
+        this.compactor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "book-store-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open book store in " + directory, e);
+        }
+    }
+
+    @Override
+    public void addListener(LibraryListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void addBook(Book book) {
+        byte[] record = BookRecord.put(book);
+        Book[] replaced = new Book[1];
+        index.compute(Isbn.canonical(book.getIsbn()), (isbn, current) -> {
+            if (current != null) {
+                replaced[0] = read(current);
+                yearIndex.remove(replaced[0]);
+                current.release();
+            }
+            Location location = append(record, true);
+            yearIndex.add(book);
+            return location;
+        });
+        if (replaced[0] != null) {
+            listeners.forEach(listener -> listener.bookRemoved(replaced[0]));
+        }
+        listeners.forEach(listener -> listener.bookAdded(book));
+        maybeCompact();
+    }
+
+    @Override
+    public void removeBook(String isbn) {
+        Book[] removed = new Book[1];
+        index.computeIfPresent(Isbn.canonical(isbn), (key, current) -> {
+            removed[0] = read(current);
+            append(BookRecord.delete(key), false);
+            yearIndex.remove(removed[0]);
+            current.release();
+            return null;
+        });
+        if (removed[0] != null) {
+            listeners.forEach(listener -> listener.bookRemoved(removed[0]));
+            maybeCompact();
+        }
+    }
+
+    @Override
+    public Stream<Book> books() {
+        return index.values().stream().map(this::read);
+    }
+
+    @Override
+    public Optional<Book> findBookByISBN(String isbn) {
+        Location location = index.get(Isbn.canonical(isbn));
+        return location == null ? Optional.empty() : Optional.of(read(location));
+    }
+
+    @Override
+    public Map<String, Book> findBooksByISBNs(Collection<String> isbns) {
+        Map<String, Book> found = new LinkedHashMap<>();
+        for (String isbn : isbns) {
+            Location location = index.get(Isbn.canonical(isbn));
+            if (location != null) {
+                found.put(isbn, read(location));
+            }
+        }
+        return found;
+    }
+
+    /* Served from the (author, year) index, so only the author's own records are read from disk */
+    @Override
+    public List<Book> findBooksByAuthor(String author) {
+        return yearIndex.byAuthor(author, isbn -> {
+            Location location = index.get(Isbn.canonical(isbn));
+            return location == null ? null : read(location);
+        });
+    }
+
+    @Override
+    public BookPage findBooksByPublicationYear(String author, int fromYear, int toYear, String after, int limit) {
+        return yearIndex.page(author, fromYear, toYear, after, limit, isbn -> findBookByISBN(isbn).orElse(null));
+    }
+
+    @Override
+    public boolean borrowBook(String isbn) {
+        return adjustCopies(isbn, -1);
+    }
+
+    @Override
+    public boolean returnBook(String isbn) {
+        return adjustCopies(isbn, 1);
+    }
+
+    @Override
+    public boolean correctCopies(String isbn, int expected, int counted) {
+        Book changed = rewrite(isbn, book -> book.getAvailableCopies() == expected ? book.withAvailableCopies(counted) : null);
+        if (changed == null) {
+            return false;
+        }
+        listeners.forEach(listener -> listener.copiesChanged(changed, expected, counted));
+        maybeCompact();
+        return true;
+    }
+
+    /* The log is the version history: a snapshot pins the end of the log and replays the records before it, so it
+    never sees a later write. Compaction only appends, and the segments it deletes stay mapped for the snapshot.
+    Every books() call on the snapshot replays the pinned log from the start, so read it once. */
+    @Override
+    public CatalogueSnapshot snapshot() {
+        List<Segment> pinned;
+        int end;
+        long epoch;
+        synchronized (appendLock) {
+            pinned = new ArrayList<>(segments.values());
+            end = active.limit();
+            epoch = sequence.get();
+        }
+        Segment last = pinned.get(pinned.size() - 1);
+        return new CatalogueSnapshot(epoch, () -> {
+            Map<String, Location> visible = new HashMap<>();
+            for (Segment segment : pinned) {
+                segment.scan(segment == last ? end : segment.capacity(), (offset, length, record) -> {
+                    if (record.type == BookRecord.PUT) {
+                        visible.put(Isbn.canonical(record.isbn), new Location(segment, offset, length));
+                    } else {
+                        visible.remove(Isbn.canonical(record.isbn));
+                    }
+                });
+            }
+            return visible.values().stream().map(this::read);
+        }, () -> { });
+    }
+
+    /* Rewrites the live records of every rolled segment that is mostly garbage and deletes it. Waits for a
+    background compaction that is already running and then makes a pass of its own. */
+    public void compact() {
+        synchronized (compactLock) {
+            compactionDue.set(false);
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.liveBytes.get() < segment.capacity() * COMPACT_BELOW_LIVE_RATIO) {
+                    compact(segment);
+                }
+            }
+        }
+    }
+
+    /* Forcing needs no append lock; the roll lock keeps a segment that is being rolled from being skipped */
+    public void flush() {
+        synchronized (rollLock) {
+            active.force();
+        }
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private boolean adjustCopies(String isbn, int delta) {
+        Book changed = rewrite(isbn, book -> book.getAvailableCopies() <= 0 ? null : book.withAvailableCopies(book.getAvailableCopies() + delta));
+        if (changed == null) {
+            return false;
+        }
+        listeners.forEach(listener -> listener.copiesChanged(changed, changed.getAvailableCopies() - delta, changed.getAvailableCopies()));
+        maybeCompact();
+        return true;
+    }
+
+    /* Appends the changed book under the ISBN's index lock; change returns null to leave the book as it is */
+    private Book rewrite(String isbn, UnaryOperator<Book> change) {
+        Book[] changed = new Book[1];
+        index.computeIfPresent(Isbn.canonical(isbn), (key, current) -> {
+            changed[0] = change.apply(read(current));
+            if (changed[0] == null) {
+                return current;
+            }
+            Location location = append(BookRecord.put(changed[0]), true);
+            current.release();
+            return location;
+        });
+        return changed[0];
+    }
+
+    private Book read(Location location) {
+        return location.segment.record(location.offset, location.length).book;
+    }
+
+    /* Callers hold the ISBN's index lock, so records for one ISBN reach the log in the order they were applied */
+    private Location append(byte[] record, boolean live) {
+        if (record.length > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + record.length + " bytes does not fit in a segment");
+        }
+        for (;;) {
+            Segment full;
+            synchronized (appendLock) {
+                int offset = active.append(record);
+                if (offset >= 0) {
+                    sequence.incrementAndGet();
+                    Location location = new Location(active, offset, record.length);
+                    if (live) {
+                        active.liveBytes.addAndGet(record.length);
+                    }
+                    return location;
+                }
+                full = active;
+            }
+            roll(full);
+        }
+    }
+
+    /* The new file is created and the full one forced outside the append lock, so snapshots and appends that still
+    fit do not wait on the disk. Threads that find the same segment full wait here for the one new segment. */
+    private void roll(Segment full) {
+        synchronized (rollLock) {
+            if (active != full) {
+                return;
+            }
+            try {
+                Segment next = Segment.create(directory, full.id + 1, segmentBytes);
+                synchronized (appendLock) {
+                    segments.put(next.id, next);
+                    active = next;
+                }
+                full.force();
+                compactionDue.set(true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot roll segment in " + directory, e);
+            }
+        }
+    }
+
+    /* Hands compaction to the background thread; it takes index locks itself, so never run it under one */
+    private void maybeCompact() {
+        if (!compactionDue.get() || !compactionQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactor.execute(() -> {
+                compactionQueued.set(false);
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    System.out.println("Compaction in " + directory + " failed: " + e.getMessage()); //Works as logger
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            compactionQueued.set(false);
+        }
+    }
+
+    private void compact(Segment segment) {
+        boolean olderSegments = segments.firstKey() < segment.id;
+        segment.scan(segment.capacity(), (offset, length, record) -> {
+            if (record.type == BookRecord.PUT) {
+                index.computeIfPresent(Isbn.canonical(record.isbn), (isbn, current) ->
+                        current.segment == segment && current.offset == offset
+                                ? append(segment.read(offset, length), true)
+                                : current);
+            } else if (olderSegments) {
+                // Older segments may still hold puts for this ISBN; keep the delete ahead of them on replay
+                index.compute(Isbn.canonical(record.isbn), (isbn, current) -> {
+                    if (current == null) {
+                        append(segment.read(offset, length), false);
+                    }
+                    return current;
+                });
+            }
+        });
+        // The moved records must be on disk before their only durable copy goes; segments rolled meanwhile were forced
+        flush();
+        segments.remove(segment.id);
+        segment.delete();
+        System.out.println("Compacted segment " + segment.path); //Works as logger
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().matches("segment-\\d+\\.log"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Segment segment = Segment.open(file, Long.parseLong(name.substring(8, name.length() - 4)));
+            segments.put(segment.id, segment);
+            segment.recover((offset, length, record) -> {
+                String isbn = Isbn.canonical(record.isbn);
+                Location previous = record.type == BookRecord.PUT
+                        ? index.put(isbn, new Location(segment, offset, length))
+                        : index.remove(isbn);
+                if (previous != null) {
+                    yearIndex.remove(read(previous));
+                    previous.release();
+                }
+                if (record.type == BookRecord.PUT) {
+                    yearIndex.add(record.book);
+                    segment.liveBytes.addAndGet(length);
+                }
+                sequence.incrementAndGet();
+            });
+        }
+        if (segments.isEmpty()) {
+            Segment first = Segment.create(directory, 1, segmentBytes);
+            segments.put(first.id, first);
+        }
+        active = segments.lastEntry().getValue();
+        System.out.println("Opened book store in " + directory + ": " + index.size() + " books, " + segments.size() + " segments"); //Works as logger
+    }
+
+    private static final class Location {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        private Location(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /* The record has been superseded; its bytes are now garbage in its segment */
+        private void release() {
+            segment.liveBytes.addAndGet(-length);
+        }
+    }
+}
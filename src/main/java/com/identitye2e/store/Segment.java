@@ -0,0 +1,135 @@
+package com.identitye2e.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class Segment {
+    /* A fixed size log file mapped into memory. Records are only ever appended (under the store's append lock) and
+    never modified, so readers copy them straight out of the mapping without locking. The mapping outlives the
+    file: a reader or snapshot still holding a compacted segment can keep reading it after it is deleted. */
+    final long id;
+    final Path path;
+    final AtomicLong liveBytes;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int position;
+
+    private Segment(long id, Path path, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.liveBytes = new AtomicLong();
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+    }
+
+    static Segment create(Path directory, long id, int capacity) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        }
+    }
+
+    static Segment open(Path path, long id) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    static String fileName(long id) {
+        return String.format("segment-%012d.log", id);
+    }
+
+    /* Offset the record was written at, or -1 when it does not fit */
+    int append(byte[] record) {
+        if (record.length > capacity - position) {
+            return -1;
+        }
+        int offset = position;
+        buffer.put(offset, record);
+        position += record.length;
+        return offset;
+    }
+
+    /* End of the written records; only stable under the store's append lock */
+    int limit() {
+        return position;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    byte[] read(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return bytes;
+    }
+
+    /* Length of the record at the offset, header included */
+    int size(int offset) {
+        return BookRecord.HEADER_BYTES + buffer.getInt(offset);
+    }
+
+    BookRecord record(int offset, int length) {
+        return BookRecord.decode(read(offset + BookRecord.HEADER_BYTES, length - BookRecord.HEADER_BYTES));
+    }
+
+    /* Walks the records in [0, end), stopping at the unwritten tail */
+    void scan(int end, RecordVisitor visitor) {
+        int offset = 0;
+        while (offset + BookRecord.HEADER_BYTES <= end) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > end - offset - BookRecord.HEADER_BYTES) {
+                return;
+            }
+            int size = BookRecord.HEADER_BYTES + length;
+            visitor.visit(offset, size, record(offset, size));
+            offset += size;
+        }
+    }
+
+    /* Replays the segment after a restart and positions the writer after the last intact record. A torn or
+    corrupt record ends the segment: it and anything after it are zeroed so they can never be replayed. */
+    void recover(RecordVisitor visitor) {
+        int offset = 0;
+        while (offset + BookRecord.HEADER_BYTES <= capacity) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > capacity - offset - BookRecord.HEADER_BYTES
+                    || BookRecord.checksum(read(offset + BookRecord.HEADER_BYTES, length)) != buffer.getInt(offset + 4)) {
+                System.out.println("Truncating " + path + " at corrupt record, offset " + offset); //Works as logger
+                buffer.put(offset, new byte[capacity - offset]);
+                break;
+            }
+            int size = BookRecord.HEADER_BYTES + length;
+            visitor.visit(offset, size, record(offset, size));
+            offset += size;
+        }
+        position = offset;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    interface RecordVisitor {
+        void visit(int offset, int length, BookRecord record);
+    }
+}
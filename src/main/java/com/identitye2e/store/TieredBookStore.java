@@ -0,0 +1,492 @@
+package com.identitye2e.store;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookPage;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.CatalogueSnapshot;
+import com.identitye2e.model.Isbn;
+import com.identitye2e.model.LibraryListener;
+import com.identitye2e.model.PublicationYearIndex;
+import com.identitye2e.model.TierStats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+public class TieredBookStore implements BookStore {
+    /* In-memory engine for catalogues whose working set is much smaller than the catalogue. Up to hotCapacity books
+    are kept on the heap as Book values; the rest are demoted to the ColdTier, serialized into memory-mapped scratch
+    segments, and read back on demand. Which books stay hot is decided as in TinyLFU: a FrequencySketch counts the ISBN
+    lookups, borrows and returns that reach the store, a cold book that is accessed is promoted only if it has been wanted more often
+    than the book it would push out, and the hot books are demoted in CLOCK order, so a book read since it last
+    came round gets another pass. Scans (books(), author and year queries, reconciliation) read cold books without
+    promoting them, so a report over the whole catalogue does not flush the working set.
+    A cold book keeps its slot, which holds its address in the cold tier, and its year index keys on the heap.
+    Each slot is only changed inside index.compute for its ISBN. Snapshots work as in Library: writes are stamped
+    with the current epoch, and a write stamped after an open snapshot first records the book it replaces in that
+    snapshot's log. Removed books stay as tombstones while any snapshot is open. */
+    private final int hotCapacity;
+    private final Map<String, Slot> index;
+    private final ColdTier cold;
+    private final FrequencySketch sketch;
+    private final Queue<Slot> hotOrder;
+    private final AtomicInteger hotBooks;
+    private final AtomicInteger deadQueued;
+    private final PublicationYearIndex yearIndex;
+    private final List<LibraryListener> listeners;
+    private final AtomicLong epoch;
+    private final List<SnapshotLog> openSnapshots;
+    private final Queue<String> tombstones;
+    private final LongAdder hotHits;
+    private final LongAdder coldHits;
+    private final LongAdder promotions;
+    private final LongAdder demotions;
+
+    /* An empty coldDirectory puts the cold tier in a temporary directory */
+    public TieredBookStore(int hotCapacity, String coldDirectory, int segmentBytes) {
+        this(hotCapacity, coldDirectory.isEmpty() ? temporaryDirectory() : Path.of(coldDirectory), segmentBytes);
+    }
+
+    TieredBookStore(int hotCapacity, Path coldDirectory, int segmentBytes) {
+        if (hotCapacity < 1) {
+            throw new IllegalArgumentException("library.store.tiered.hot-capacity must be at least 1");
+        }
+        this.hotCapacity = hotCapacity;
+        this.index = new ConcurrentHashMap<>();
+        this.cold = new ColdTier(coldDirectory, segmentBytes, this::relocate);
+        this.sketch = new FrequencySketch(hotCapacity);
+        this.hotOrder = new ConcurrentLinkedQueue<>();
+        this.hotBooks = new AtomicInteger();
+        this.deadQueued = new AtomicInteger();
+        this.yearIndex = new PublicationYearIndex();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.epoch = new AtomicLong(1);
+        this.openSnapshots = new CopyOnWriteArrayList<>();
+        this.tombstones = new ConcurrentLinkedQueue<>();
+        this.hotHits = new LongAdder();
+        this.coldHits = new LongAdder();
+        this.promotions = new LongAdder();
+        this.demotions = new LongAdder();
+        System.out.println("Opened tiered book store: " + hotCapacity + " hot books, cold tier in " + coldDirectory); //Works as logger
+    }
+
+    @Override
+    public void addListener(LibraryListener listener) {
+        listeners.add(listener);
+    }
+
+    /* New and replaced books start hot; the oldest unreferenced hot book makes room */
+    @Override
+    public void addBook(Book book) {
+        Book[] replaced = new Book[1];
+        index.compute(Isbn.canonical(book.getIsbn()), (isbn, current) -> {
+            Slot slot = current == null ? new Slot(isbn) : current;
+            Book old = read(slot);
+            if (old != null) {
+                yearIndex.remove(old);
+            }
+            stamp(slot, old);
+            slot.removed = false;
+            makeHot(slot, book);
+            // As in promote: the cold copy goes only once the hot one is in place, so read() always finds one
+            if (slot.cold != ColdTier.NONE) {
+                cold.remove(slot.cold);
+                slot.cold = ColdTier.NONE;
+            }
+            yearIndex.add(book);
+            replaced[0] = old;
+            return slot;
+        });
+        if (replaced[0] != null) {
+            listeners.forEach(listener -> listener.bookRemoved(replaced[0]));
+        }
+        listeners.forEach(listener -> listener.bookAdded(book));
+        demoteOverflow();
+    }
+
+    @Override
+    public void removeBook(String isbn) {
+        Book[] removed = new Book[1];
+        index.computeIfPresent(Isbn.canonical(isbn), (key, current) -> {
+            removed[0] = read(current);
+            if (removed[0] == null) {
+                return current;
+            }
+            yearIndex.remove(removed[0]);
+            boolean keep = stamp(current, removed[0]);
+            current.removed = true;
+            if (current.cold != ColdTier.NONE) {
+                cold.remove(current.cold);
+                current.cold = ColdTier.NONE;
+            } else {
+                current.book = null;
+                hotBooks.decrementAndGet();
+            }
+            if (!keep) {
+                return dropped(current);
+            }
+            tombstones.add(key);
+            return current;
+        });
+        if (removed[0] != null) {
+            listeners.forEach(listener -> listener.bookRemoved(removed[0]));
+            purgeDead();
+            cold.maybeCompact();
+        }
+    }
+
+    @Override
+    public Stream<Book> books() {
+        return index.values().stream().map(this::read).filter(Objects::nonNull);
+    }
+
+    @Override
+    public Optional<Book> findBookByISBN(String isbn) {
+        return Optional.ofNullable(access(index.get(Isbn.canonical(isbn))));
+    }
+
+    @Override
+    public Map<String, Book> findBooksByISBNs(Collection<String> isbns) {
+        Map<String, Book> found = new LinkedHashMap<>();
+        for (String isbn : isbns) {
+            Book book = access(index.get(Isbn.canonical(isbn)));
+            if (book != null) {
+                found.put(isbn, book);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Book> findBooksByAuthor(String author) {
+        return yearIndex.byAuthor(author, this::peek);
+    }
+
+    @Override
+    public BookPage findBooksByPublicationYear(String author, int fromYear, int toYear, String after, int limit) {
+        return yearIndex.page(author, fromYear, toYear, after, limit, this::peek);
+    }
+
+    @Override
+    public boolean borrowBook(String isbn) {
+        return adjustCopies(isbn, -1);
+    }
+
+    @Override
+    public boolean returnBook(String isbn) {
+        return adjustCopies(isbn, 1);
+    }
+
+    @Override
+    public boolean correctCopies(String isbn, int expected, int counted) {
+        Book changed = rewrite(isbn, book -> book.getAvailableCopies() == expected ? book.withAvailableCopies(counted) : null);
+        if (changed == null) {
+            return false;
+        }
+        listeners.forEach(listener -> listener.copiesChanged(changed, expected, counted));
+        cold.maybeCompact();
+        return true;
+    }
+
+    @Override
+    public CatalogueSnapshot snapshot() {
+        SnapshotLog log = openSnapshot();
+        return new CatalogueSnapshot(log.epoch, () -> index.values().stream()
+                .map(slot -> {
+                    Book book = read(slot);
+                    if (slot.version <= log.epoch) {
+                        return book;
+                    }
+                    Optional<Book> before = log.replaced.get(slot.isbn);
+                    return before == null ? book : before.orElse(null);
+                })
+                .filter(Objects::nonNull), () -> closeSnapshot(log));
+    }
+
+    @Override
+    public Optional<TierStats> tierStats() {
+        return Optional.of(new TierStats(hotBooks.get(), hotCapacity, cold.size(), cold.bytes(),
+                hotHits.sum(), coldHits.sum(), promotions.sum(), demotions.sum()));
+    }
+
+    int coldSegmentCount() throws InterruptedException, ExecutionException {
+        return cold.segmentCount();
+    }
+
+    @Override
+    public void close() {
+        cold.close();
+    }
+
+    private boolean adjustCopies(String isbn, int delta) {
+        String key = Isbn.canonical(isbn);
+        Slot slot = index.get(key);
+        if (slot == null) {
+            return false;
+        }
+        boolean wasCold = slot.book == null;
+        Book changed = rewrite(key, book -> book.getAvailableCopies() <= 0 ? null : book.withAvailableCopies(book.getAvailableCopies() + delta));
+        if (changed == null) {
+            return false;
+        }
+        listeners.forEach(listener -> listener.copiesChanged(changed, changed.getAvailableCopies() - delta, changed.getAvailableCopies()));
+        touch(slot, !wasCold);
+        cold.maybeCompact();
+        return true;
+    }
+
+    /* Applies the change under the ISBN's index lock, in whichever tier holds the book; change returns null to leave
+    the book as it is. Does not count as an access, so reconciliation does not promote what it corrects. */
+    private Book rewrite(String isbn, UnaryOperator<Book> change) {
+        Book[] changed = new Book[1];
+        index.computeIfPresent(Isbn.canonical(isbn), (key, current) -> {
+            Book book = read(current);
+            changed[0] = book == null ? null : change.apply(book);
+            if (changed[0] == null) {
+                return current;
+            }
+            stamp(current, book);
+            if (current.cold != ColdTier.NONE) {
+                current.cold = cold.replace(current.cold, changed[0]);
+            } else {
+                current.book = changed[0];
+            }
+            return current;
+        });
+        return changed[0];
+    }
+
+    /* A lookup by ISBN: counts towards the book's frequency and may promote it */
+    private Book access(Slot slot) {
+        if (slot == null) {
+            return null;
+        }
+        Book hot = slot.book;
+        Book book = hot != null ? hot : read(slot);
+        if (book != null) {
+            touch(slot, hot != null);
+        }
+        return book;
+    }
+
+    private void touch(Slot slot, boolean hit) {
+        sketch.increment(slot.isbn);
+        if (hit) {
+            slot.referenced = true;
+            hotHits.increment();
+            return;
+        }
+        coldHits.increment();
+        if (admit(slot)) {
+            promote(slot);
+        }
+    }
+
+    /* TinyLFU admission: a cold book only displaces a hot one that has been wanted less often */
+    private boolean admit(Slot candidate) {
+        if (hotBooks.get() < hotCapacity) {
+            return true;
+        }
+        Slot victim = hotOrder.peek();
+        return victim == null || sketch.frequency(candidate.isbn) > sketch.frequency(victim.isbn);
+    }
+
+    private void promote(Slot slot) {
+        boolean[] promoted = new boolean[1];
+        index.computeIfPresent(slot.isbn, (isbn, current) -> {
+            if (current == slot && !slot.removed && slot.book == null) {
+                makeHot(slot, cold.get(slot.cold));
+                cold.remove(slot.cold);
+                slot.cold = ColdTier.NONE;
+                promoted[0] = true;
+            }
+            return current;
+        });
+        if (promoted[0]) {
+            promotions.increment();
+            demoteOverflow();
+        }
+    }
+
+    /* Callers hold the ISBN's index lock */
+    private void makeHot(Slot slot, Book book) {
+        if (slot.book == null) {
+            hotBooks.incrementAndGet();
+            if (!slot.queued) {
+                slot.queued = true;
+                hotOrder.add(slot);
+            }
+        }
+        slot.book = book;
+    }
+
+    /* CLOCK over the hot books: a referenced book is sent round again, up to one lap, before anything is demoted.
+    Runs outside any index lock, since demotion takes the victim's. */
+    private void demoteOverflow() {
+        int laps = hotCapacity;
+        Slot victim;
+        while (hotBooks.get() > hotCapacity && (victim = hotOrder.poll()) != null) {
+            if (demote(victim, laps-- > 0)) {
+                demotions.increment();
+            }
+        }
+        cold.maybeCompact();
+    }
+
+    private boolean demote(Slot victim, boolean secondChance) {
+        boolean[] demoted = new boolean[1];
+        index.computeIfPresent(victim.isbn, (isbn, current) -> {
+            if (current != victim) {
+                return current;
+            }
+            if (secondChance && victim.book != null && victim.referenced) {
+                victim.referenced = false;
+                hotOrder.add(victim);
+                return current;
+            }
+            victim.queued = false;
+            if (victim.book != null) {
+                victim.cold = cold.put(victim.book);
+                victim.book = null;
+                victim.referenced = false;
+                hotBooks.decrementAndGet();
+                demoted[0] = true;
+            }
+            return current;
+        });
+        return demoted[0];
+    }
+
+    /* Reads the book from whichever tier holds it, without counting an access; null once removed */
+    private Book read(Slot slot) {
+        for (;;) {
+            Book book = slot.book;
+            if (book != null || slot.removed) {
+                return book;
+            }
+            long address = slot.cold;
+            book = address == ColdTier.NONE ? null : cold.get(address);
+            // Null when promoted or moved by compaction between the reads. Every move puts the book in its new place
+            // before clearing the old one, so reading the slot again finds it.
+            if (book != null || (slot.cold == address && slot.book == null && !slot.removed)) {
+                return book;
+            }
+        }
+    }
+
+    /* Compaction of the cold tier: moves the record if the book still lives there */
+    private void relocate(String isbn, long address) {
+        index.computeIfPresent(isbn, (key, current) -> {
+            if (current.cold == address) {
+                current.cold = cold.move(address);
+            }
+            return current;
+        });
+    }
+
+    private Book peek(String isbn) {
+        Slot slot = index.get(Isbn.canonical(isbn));
+        return slot == null ? null : read(slot);
+    }
+
+    /* Callers hold the ISBN's index lock and have not yet changed the slot. Records the book being replaced for every
+    snapshot that must not see the change; true while any snapshot is open. */
+    private boolean stamp(Slot slot, Book replaced) {
+        long now = epoch.get();
+        for (SnapshotLog log : openSnapshots) {
+            if (log.epoch < now) {
+                log.replaced.putIfAbsent(slot.isbn, Optional.ofNullable(replaced));
+            }
+        }
+        slot.version = now;
+        return !openSnapshots.isEmpty();
+    }
+
+    /* Registers the log before advancing the epoch, so any write stamped after the snapshot finds its log */
+    private synchronized SnapshotLog openSnapshot() {
+        SnapshotLog log = new SnapshotLog(epoch.get());
+        openSnapshots.add(log);
+        epoch.incrementAndGet();
+        return log;
+    }
+
+    private synchronized void closeSnapshot(SnapshotLog log) {
+        openSnapshots.remove(log);
+        if (!openSnapshots.isEmpty()) {
+            return;
+        }
+        for (int pending = tombstones.size(); pending > 0; pending--) {
+            String isbn = tombstones.poll();
+            if (isbn == null) {
+                break;
+            }
+            index.computeIfPresent(isbn, (key, current) -> current.removed ? dropped(current) : current);
+        }
+        purgeDead();
+    }
+
+    /* Callers hold the ISBN's index lock and are taking the slot out of the index */
+    private Slot dropped(Slot slot) {
+        if (slot.queued) {
+            deadQueued.incrementAndGet();
+        }
+        return null;
+    }
+
+    /* Removed books leave their slots in hotOrder until demotion reaches them; sweep them out once they add up */
+    private void purgeDead() {
+        if (deadQueued.get() > hotCapacity) {
+            deadQueued.set(0);
+            hotOrder.removeIf(slot -> index.get(slot.isbn) != slot);
+        }
+    }
+
+    private static Path temporaryDirectory() {
+        try {
+            return Files.createTempDirectory("library-cold-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create cold tier directory", e);
+        }
+    }
+
+    private static final class Slot {
+        private final String isbn;
+        private volatile Book book; // null while cold or removed
+        private volatile long cold; // address in the cold tier, ColdTier.NONE while hot or removed
+        private volatile boolean removed;
+        private volatile boolean referenced;
+        private volatile long version;
+        private boolean queued; // guarded by the ISBN's index lock
+
+        private Slot(String isbn) {
+            this.isbn = isbn;
+        }
+    }
+
+    private static final class SnapshotLog {
+        private final long epoch;
+        private final Map<String, Optional<Book>> replaced;
+
+        private SnapshotLog(long epoch) {
+            this.epoch = epoch;
+            this.replaced = new ConcurrentHashMap<>();
+        }
+    }
+}
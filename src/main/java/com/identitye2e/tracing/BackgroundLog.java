@@ -0,0 +1,42 @@
+package com.identitye2e.tracing;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+final class BackgroundLog implements Consumer<String> {
+    /* Hands log lines to a daemon thread, so the request that produced one never waits on the console. While the
+    queue is full lines are dropped and counted: a sampled slow-operation line is not worth holding a request for. */
+    private final BlockingQueue<String> lines;
+    private final AtomicLong dropped;
+
+    BackgroundLog(String name, int capacity, Consumer<String> sink) {
+        this.lines = new ArrayBlockingQueue<>(capacity);
+        this.dropped = new AtomicLong();
+        Thread writer = new Thread(() -> drain(sink), name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void accept(String line) {
+        if (!lines.offer(line)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain(Consumer<String> sink) {
+        try {
+            for (;;) {
+                sink.accept(lines.take());
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    sink.accept(lost + " log lines dropped");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
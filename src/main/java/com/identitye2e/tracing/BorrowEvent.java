@@ -0,0 +1,11 @@
+package com.identitye2e.tracing;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.identitye2e.Borrow")
+@Label("Borrow or Return")
+@Description("A LibraryService borrowBook or returnBook call")
+class BorrowEvent extends OperationEvent {
+}
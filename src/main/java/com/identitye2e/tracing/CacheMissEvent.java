@@ -0,0 +1,25 @@
+package com.identitye2e.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.identitye2e.CacheMiss")
+@Label("Books Cache Miss")
+@Description("A books cache miss, timed over the BookStore load that fills it")
+@Category("Library")
+@StackTrace(false)
+class CacheMissEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Key")
+    @Description("The missed key, or the first one of a multi-get")
+    String key;
+
+    @Label("Keys")
+    int keys;
+}
@@ -0,0 +1,102 @@
+package com.identitye2e.tracing;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookBatch;
+import com.identitye2e.model.BookPage;
+import org.aopalliance.intercept.MethodInterceptor;
+import jdk.jfr.EventType;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Collection;
+
+class LibraryServiceInterceptor implements MethodInterceptor {
+    /* Opens an Operation around every LibraryService call. It is ordered ahead of the caching advice, so the
+    operation's time includes the books cache proxy as well as the call itself. With tracing off and no recording
+    of the call's event the call goes straight through, before any key or event is built. */
+    private final ObjectProvider<OperationTracer> tracer;
+    private volatile OperationTracer resolved;
+
+    LibraryServiceInterceptor(ObjectProvider<OperationTracer> tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        OperationTracer operations = resolved;
+        if (operations == null) {
+            operations = tracer.getObject();
+            resolved = operations;
+        }
+        String name = invocation.getMethod().getName();
+        EventType events = eventType(name);
+        boolean recording = events != null && events.isEnabled();
+        if (!operations.isEnabled() && !recording) {
+            return invocation.proceed();
+        }
+        Operation operation = operations.start(name, key(name, invocation.getArguments()), recording ? event(name) : null);
+        try {
+            Object result = invocation.proceed();
+            operation.results(size(result));
+            return result;
+        } catch (Throwable e) {
+            operation.failed(e);
+            throw e;
+        } finally {
+            operation.close();
+        }
+    }
+
+    private static EventType eventType(String method) {
+        if (method.startsWith("find")) {
+            return OperationTracer.LOOKUP_EVENTS;
+        }
+        if (method.equals("borrowBook") || method.equals("returnBook")) {
+            return OperationTracer.BORROW_EVENTS;
+        }
+        return null;
+    }
+
+    private static OperationEvent event(String method) {
+        if (method.startsWith("find")) {
+            return new LookupEvent();
+        }
+        if (method.equals("borrowBook") || method.equals("returnBook")) {
+            return new BorrowEvent();
+        }
+        return null;
+    }
+
+    private static String key(String method, Object[] arguments) {
+        if (arguments.length == 0) {
+            return null;
+        }
+        if (method.equals("findBooksByPublicationYear")) {
+            return (arguments[0] == null ? "" : arguments[0] + " ") + arguments[1] + "-" + arguments[2];
+        }
+        Object first = arguments[0];
+        if (first instanceof Book book) {
+            return book.getIsbn();
+        }
+        if (first instanceof Collection<?> keys) {
+            return keys.size() + " isbns";
+        }
+        return String.valueOf(first);
+    }
+
+    private static int size(Object result) {
+        if (result instanceof Collection<?> books) {
+            return books.size();
+        }
+        if (result instanceof BookBatch batch) {
+            return batch.getFound().size();
+        }
+        if (result instanceof BookPage page) {
+            return page.getBooks().size();
+        }
+        if (result instanceof Boolean done) {
+            return done ? 1 : 0;
+        }
+        return result == null ? 0 : 1;
+    }
+}
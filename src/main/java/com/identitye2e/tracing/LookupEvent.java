@@ -0,0 +1,11 @@
+package com.identitye2e.tracing;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.identitye2e.Lookup")
+@Label("Book Lookup")
+@Description("A LibraryService find call, including the books cache")
+class LookupEvent extends OperationEvent {
+}
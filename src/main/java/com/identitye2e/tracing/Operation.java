@@ -0,0 +1,112 @@
+package com.identitye2e.tracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Operation implements AutoCloseable {
+    /* One timed call, opened by OperationTracer.start and closed on the thread that opened it. Holds the span the
+    call's BookStore calls nest under, adds up the time spent in each phase for the slow-operation log and commits
+    a JFR event when a recording has enabled it. NOOP stands in for all of it while tracing and JFR are off. */
+    static final Operation NOOP = new Operation(null, null, null, null, null, null, null);
+
+    private final OperationTracer tracer;
+    private final String name;
+    private final String key;
+    private final Span span;
+    private final Scope scope;
+    private final OperationEvent event;
+    private final Operation parent;
+    private final long startedAt;
+    private final Map<String, Long> phases;
+    private int results;
+    private String outcome;
+    private boolean cacheMiss;
+
+    Operation(OperationTracer tracer, String name, String key, Span span, Scope scope, OperationEvent event, Operation parent) {
+        this.tracer = tracer;
+        this.name = name;
+        this.key = key;
+        this.span = span;
+        this.scope = scope;
+        this.event = event;
+        this.parent = parent;
+        this.startedAt = System.nanoTime();
+        this.phases = new LinkedHashMap<>();
+        this.outcome = "ok";
+    }
+
+    public void results(int results) {
+        this.results = results;
+    }
+
+    public void failed(Throwable e) {
+        if (this == NOOP) {
+            return;
+        }
+        outcome = e.getClass().getSimpleName();
+        if (span != null) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, e.getMessage() == null ? outcome : e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this == NOOP) {
+            return;
+        }
+        long took = System.nanoTime() - startedAt;
+        if (span != null) {
+            span.setAttribute("library.results", results);
+            span.setAttribute("library.cache_miss", cacheMiss);
+            scope.close();
+            span.end();
+        }
+        if (event != null && event.shouldCommit()) {
+            event.operation = name;
+            event.key = key;
+            event.results = results;
+            event.outcome = outcome;
+            event.commit();
+        }
+        tracer.finished(this, took);
+    }
+
+    void phase(String phase, long nanos) {
+        phases.merge(phase, nanos, Long::sum);
+    }
+
+    void cacheMiss() {
+        cacheMiss = true;
+    }
+
+    Operation parent() {
+        return parent;
+    }
+
+    /* e.g. "Slow findBooksByAuthor key=Jane Doe results=12 outcome=ok cache=miss took 182.4 ms: store 179.9 ms, other 2.5 ms" */
+    String describe(long took) {
+        StringBuilder line = new StringBuilder("Slow ").append(name)
+                .append(" key=").append(key)
+                .append(" results=").append(results)
+                .append(" outcome=").append(outcome);
+        if (cacheMiss) {
+            line.append(" cache=miss");
+        }
+        line.append(" took ").append(millis(took)).append(':');
+        long other = took;
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            line.append(' ').append(phase.getKey()).append(' ').append(millis(phase.getValue())).append(',');
+            other -= phase.getValue();
+        }
+        return line.append(" other ").append(millis(other)).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f ms", nanos / 1_000_000.0);
+    }
+}
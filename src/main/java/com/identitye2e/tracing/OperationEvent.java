@@ -0,0 +1,22 @@
+package com.identitye2e.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+@Category("Library")
+@StackTrace(false)
+abstract class OperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Key")
+    String key;
+
+    @Label("Results")
+    int results;
+
+    @Label("Outcome")
+    String outcome;
+}
@@ -0,0 +1,154 @@
+package com.identitye2e.tracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.context.Scope;
+import jdk.jfr.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+@Component
+public class OperationTracer {
+    /* Times LibraryService operations and the BookStore calls inside them. With library.tracing.enabled every
+    operation gets a span and every BookStore call a child span, and a sample of the operations slower than
+    library.tracing.slow-threshold is logged with its key, result size and time per phase. Time in the books cache
+    proxy and the service itself is what is left of an operation after its store phase.
+    With tracing off an operation costs a check of the JFR event types, which are off unless a recording has
+    enabled the com.identitye2e events; no event, key or span is built. Slow lines are printed by a background
+    thread. */
+    private static final String INSTRUMENTATION = "com.identitye2e.library";
+    static final EventType LOOKUP_EVENTS = EventType.getEventType(LookupEvent.class);
+    static final EventType BORROW_EVENTS = EventType.getEventType(BorrowEvent.class);
+    private static final EventType CACHE_MISS_EVENTS = EventType.getEventType(CacheMissEvent.class);
+
+    private final Tracer tracer;
+    private final boolean enabled;
+    private final long slowNanos;
+    private final double sampleRate;
+    private final Consumer<String> slowLog;
+    private final ThreadLocal<Operation> current;
+
+    @Autowired
+    public OperationTracer(TracerProvider tracerProvider,
+                           @Value("${library.tracing.enabled:false}") boolean enabled,
+                           @Value("${library.tracing.slow-threshold:PT0.1S}") Duration slowThreshold,
+                           @Value("${library.tracing.slow-sample-rate:0.1}") double sampleRate) {
+        this(tracerProvider, enabled, slowThreshold, sampleRate,
+                enabled ? new BackgroundLog("slow-operation-log", 1024, System.out::println) : line -> { }); //Works as logger
+    }
+
+    OperationTracer(TracerProvider tracerProvider, boolean enabled, Duration slowThreshold, double sampleRate,
+                    Consumer<String> slowLog) {
+        this.tracer = tracerProvider.get(INSTRUMENTATION);
+        this.enabled = enabled;
+        this.slowNanos = slowThreshold.toNanos();
+        this.sampleRate = sampleRate;
+        this.slowLog = slowLog;
+        this.current = new ThreadLocal<>();
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    public static OperationTracer disabled() {
+        return new OperationTracer(TracerProvider.noop(), false, Duration.ZERO, 0, line -> { });
+    }
+
+    public Operation start(String name, String key) {
+        return start(name, key, null);
+    }
+
+    Operation start(String name, String key, OperationEvent event) {
+        boolean recording = event != null && event.isEnabled();
+        if (!enabled && !recording) {
+            return Operation.NOOP;
+        }
+        Span span = null;
+        Scope scope = null;
+        if (enabled) {
+            span = tracer.spanBuilder(name).setAttribute("library.key", String.valueOf(key)).startSpan();
+            scope = span.makeCurrent();
+        }
+        if (recording) {
+            event.begin();
+        }
+        Operation operation = new Operation(this, name, key, span, scope, recording ? event : null, current.get());
+        current.set(operation);
+        return operation;
+    }
+
+    /* Runs a BookStore call as the store phase of the current operation */
+    public <T> T store(String call, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        Operation operation = current.get();
+        Span span = tracer.spanBuilder("BookStore." + call).startSpan();
+        long start = System.nanoTime();
+        try (Scope ignored = span.makeCurrent()) {
+            return action.get();
+        } catch (RuntimeException | Error e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            span.end();
+            if (operation != null) {
+                operation.phase("store", System.nanoTime() - start);
+            }
+        }
+    }
+
+    public void store(String call, Runnable action) {
+        store(call, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /* Runs the BookStore call that fills a books cache miss; key is the missed key, or the first of keys misses */
+    public <T> T cacheMiss(String call, String key, int keys, Supplier<T> load) {
+        boolean recording = CACHE_MISS_EVENTS.isEnabled();
+        if (!enabled && !recording) {
+            return load.get();
+        }
+        Operation operation = current.get();
+        if (operation != null) {
+            operation.cacheMiss();
+        }
+        CacheMissEvent event = recording ? new CacheMissEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        try {
+            return store(call, load);
+        } finally {
+            if (event != null && event.shouldCommit()) {
+                event.operation = call;
+                event.key = key;
+                event.keys = keys;
+                event.commit();
+            }
+        }
+    }
+
+    void finished(Operation operation, long took) {
+        if (operation.parent() == null) {
+            current.remove();
+        } else {
+            current.set(operation.parent());
+        }
+        if (enabled && took >= slowNanos && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            slowLog.accept(operation.describe(took));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.identitye2e.tracing;
+
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class RecentSpans implements SpanExporter {
+    /* Local span exporter: keeps the most recently finished spans in memory for /api/library/stats/traces, so
+    tracing works without a collector. Oldest spans are dropped once capacity is reached.
+    Spans are exported on the thread that ends them, so the buffer is a lock-free ring: each span claims the next
+    slot with one increment and overwrites whatever was there. A reader racing with writers may miss a span whose
+    slot was claimed but not yet filled, or see a slot that was refilled while it read; that is fine for a view of
+    recent traffic. */
+    private final int capacity;
+    private final AtomicReferenceArray<SpanSummary> spans;
+    private final AtomicLong next;
+
+    public RecentSpans(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("library.tracing.recent-spans must be at least 1");
+        }
+        this.capacity = capacity;
+        this.spans = new AtomicReferenceArray<>(capacity);
+        this.next = new AtomicLong();
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> finished) {
+        for (SpanData span : finished) {
+            SpanSummary summary = summarise(span);
+            spans.set((int) (next.getAndIncrement() % capacity), summary);
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /* Most recent first */
+    public List<SpanSummary> recent() {
+        long last = next.get();
+        List<SpanSummary> recent = new ArrayList<>((int) Math.min(last, capacity));
+        for (long i = last - 1; i >= 0 && i >= last - capacity; i--) {
+            SpanSummary span = spans.get((int) (i % capacity));
+            if (span != null) {
+                recent.add(span);
+            }
+        }
+        return recent;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    private static SpanSummary summarise(SpanData span) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        String parent = span.getParentSpanContext().isValid() ? span.getParentSpanId() : null;
+        return new SpanSummary(span.getTraceId(), span.getSpanId(), parent, span.getName(),
+                (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000,
+                span.getStatus().getStatusCode() == StatusCode.ERROR, attributes);
+    }
+}
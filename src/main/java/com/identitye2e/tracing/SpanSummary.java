@@ -0,0 +1,63 @@
+package com.identitye2e.tracing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SpanSummary {
+    @JsonProperty("traceId")
+    private final String traceId;
+    @JsonProperty("spanId")
+    private final String spanId;
+    @JsonProperty("parentSpanId")
+    private final String parentSpanId;
+    @JsonProperty("name")
+    private final String name;
+    @JsonProperty("durationMicros")
+    private final long durationMicros;
+    @JsonProperty("error")
+    private final boolean error;
+    @JsonProperty("attributes")
+    private final Map<String, String> attributes;
+
+    public SpanSummary(String traceId, String spanId, String parentSpanId, String name, long durationMicros,
+                       boolean error, Map<String, String> attributes) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.durationMicros = durationMicros;
+        this.error = error;
+        this.attributes = attributes;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    public boolean isError() {
+        return error;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+}
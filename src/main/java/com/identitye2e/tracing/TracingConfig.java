@@ -0,0 +1,55 @@
+package com.identitye2e.tracing;
+
+import com.identitye2e.service.LibraryService;
+import com.identitye2e.service.LibraryServiceImpl;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public RecentSpans recentSpans(@Value("${library.tracing.recent-spans:512}") int capacity) {
+        return new RecentSpans(capacity);
+    }
+
+    @Bean
+    public TracerProvider tracerProvider(@Value("${library.tracing.enabled:false}") boolean enabled, RecentSpans recentSpans) {
+        if (!enabled) {
+            return TracerProvider.noop();
+        }
+        return SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(recentSpans))
+                .build();
+    }
+
+    /* Infrastructure role so the auto-proxy creator behind @EnableCaching applies it to the service next to the
+    caching advice; highest precedence puts it outside that advice */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor libraryServiceTracingAdvisor(ObjectProvider<OperationTracer> tracer) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return LibraryServiceImpl.class.isAssignableFrom(targetClass)
+                        && ClassUtils.hasMethod(LibraryService.class, method.getName(), method.getParameterTypes());
+            }
+        }, new LibraryServiceInterceptor(tracer));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
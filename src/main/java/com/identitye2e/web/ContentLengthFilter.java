@@ -0,0 +1,228 @@
+package com.identitye2e.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+
+@Component
+public class ContentLengthFilter extends OncePerRequestFilter {
+    /* Tomcat only honours server.compression.min-response-size when it knows the Content-Length, and bodies that
+    Jackson streams out have none, so even a 150 byte error message was gzipped (and grew). This holds back the
+    first min-response-size bytes: a body that ends inside that window goes out with a Content-Length and is left
+    uncompressed, anything longer is streamed (and compressed) exactly as before.
+    Whether compression is on is checked per request rather than with a bean condition, because the fast-startup
+    build evaluates bean conditions once at build time. */
+    private final boolean compression;
+    private final int threshold;
+
+    public ContentLengthFilter(@Value("${server.compression.enabled:false}") boolean compression,
+                               @Value("${server.compression.min-response-size:2KB}") DataSize threshold) {
+        this.compression = compression;
+        this.threshold = (int) threshold.toBytes();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !compression;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        BufferingResponse buffering = new BufferingResponse(response, threshold);
+        chain.doFilter(request, buffering);
+        buffering.finish(request.isAsyncStarted());
+    }
+
+    static final class BufferingResponse extends HttpServletResponseWrapper {
+        private final byte[] buffer;
+        private int count;
+        private boolean passThrough;
+        private ServletOutputStream target;
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+
+        BufferingResponse(HttpServletResponse response, int threshold) {
+            super(response);
+            this.buffer = new byte[threshold];
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            if (stream == null) {
+                stream = new BufferingStream();
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                stream = new BufferingStream();
+                writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        /* A length set by the application already lets Tomcat apply the threshold, so stop buffering */
+        @Override
+        public void setContentLength(int length) {
+            super.setContentLength(length);
+            passThrough();
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            super.setContentLengthLong(length);
+            passThrough();
+        }
+
+        @Override
+        public synchronized void flushBuffer() throws IOException {
+            if (passThrough) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public synchronized void resetBuffer() {
+            super.resetBuffer();
+            count = 0;
+        }
+
+        @Override
+        public synchronized void reset() {
+            super.reset();
+            count = 0;
+        }
+
+        /* Called once the handler returns. An async response keeps writing after that, so it is switched to
+        streaming; otherwise the whole body is in the buffer and its length is known. */
+        synchronized void finish(boolean async) throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (passThrough) {
+                return;
+            }
+            if (async) {
+                passThrough();
+                return;
+            }
+            if (count > 0) {
+                super.setContentLength(count);
+                target().write(buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        private synchronized void passThrough() {
+            if (passThrough) {
+                return;
+            }
+            passThrough = true;
+            if (count > 0) {
+                try {
+                    target().write(buffer, 0, count);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count = 0;
+            }
+        }
+
+        private ServletOutputStream target() throws IOException {
+            if (target == null) {
+                target = super.getOutputStream();
+            }
+            return target;
+        }
+
+        private final class BufferingStream extends ServletOutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                synchronized (BufferingResponse.this) {
+                    if (!passThrough && count + length <= buffer.length) {
+                        System.arraycopy(bytes, offset, buffer, count, length);
+                        count += length;
+                        return;
+                    }
+                    passThrough();
+                }
+                target().write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                synchronized (BufferingResponse.this) {
+                    if (!passThrough) {
+                        return;
+                    }
+                }
+                target().flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                synchronized (BufferingResponse.this) {
+                    if (!passThrough) {
+                        return;
+                    }
+                }
+                target().close();
+            }
+
+            /* The buffer always takes a write; once streaming, the container's stream decides */
+            @Override
+            public boolean isReady() {
+                synchronized (BufferingResponse.this) {
+                    if (!passThrough) {
+                        return true;
+                    }
+                }
+                try {
+                    return target().isReady();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            /* The container calls the listener back as its own stream becomes writable, so a non-blocking
+            response is streamed from the start */
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                passThrough();
+                try {
+                    target().setWriteListener(listener);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
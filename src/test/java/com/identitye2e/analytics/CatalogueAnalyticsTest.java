@@ -0,0 +1,149 @@
+package com.identitye2e.analytics;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.CatalogueSnapshot;
+import com.identitye2e.model.Library;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogueAnalyticsTest {
+    private Library library;
+    private CatalogueAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        library = new Library();
+        analytics = new CatalogueAnalytics(library);
+    }
+
+    @Test
+    void copiesByAuthor_ShouldTrackAddsBorrowsAndRemovals() {
+        library.addBook(new Book("1", "Title 1", "Author 1", 2001, 3));
+        library.addBook(new Book("2", "Title 2", "Author 1", 2002, 2));
+        library.addBook(new Book("3", "Title 3", "Author 2", 2002, 1));
+
+        library.borrowBook("1");
+        library.removeBook("3");
+
+        assertEquals(Map.of("Author 1", 4L), analytics.copiesByAuthor());
+    }
+
+    @Test
+    void titlesByYear_ShouldCountTitlesPerPublicationYear() {
+        library.addBook(new Book("1", "Title 1", "Author 1", 2001, 3));
+        library.addBook(new Book("2", "Title 2", "Author 1", 2002, 2));
+        library.addBook(new Book("3", "Title 3", "Author 2", 2002, 1));
+
+        assertEquals(Map.of(2001, 1L, 2002, 2L), analytics.titlesByYear());
+    }
+
+    @Test
+    void outOfStock_ShouldCountBooksWithNoCopiesLeft() {
+        library.addBook(new Book("1", "Title 1", "Author 1", 2001, 1));
+        library.addBook(new Book("2", "Title 2", "Author 1", 2002, 0));
+
+        library.borrowBook("1");
+
+        assertEquals(2, analytics.outOfStock());
+
+        library.removeBook("2");
+
+        assertEquals(1, analytics.outOfStock());
+    }
+
+    @Test
+    void addBook_ShouldReplacePreviousCounts_WhenIsbnIsAddedAgain() {
+        library.addBook(new Book("1", "Title 1", "Author 1", 2001, 1));
+        library.addBook(new Book("1", "Title 1", "Author 1", 2001, 5));
+
+        assertEquals(Map.of("Author 1", 5L), analytics.copiesByAuthor());
+        assertEquals(Map.of(2001, 1L), analytics.titlesByYear());
+    }
+
+    @Test
+    void rebuild_ShouldMatchIncrementalCounters() {
+        IntStream.range(0, 10_000).forEach(i ->
+                library.addBook(new Book(String.valueOf(i), "Title " + i, "Author " + (i % 17), 1950 + i % 70, i % 4)));
+        IntStream.range(0, 10_000).parallel().forEach(i -> library.borrowBook(String.valueOf(i)));
+        Map<String, Long> incrementalCopies = analytics.copiesByAuthor();
+        Map<Integer, Long> incrementalYears = analytics.titlesByYear();
+        long incrementalOutOfStock = analytics.outOfStock();
+
+        analytics.rebuild();
+
+        assertEquals(incrementalCopies, analytics.copiesByAuthor());
+        assertEquals(incrementalYears, analytics.titlesByYear());
+        assertEquals(incrementalOutOfStock, analytics.outOfStock());
+    }
+
+    @Test
+    void outOfStock_ShouldCountEachBookOnce_WhenItsLastCopiesAreBorrowedConcurrently() throws Exception {
+        int books = 2_000;
+        for (int i = 0; i < books; i++) {
+            library.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2001, 2));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> borrowers = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            borrowers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < books; i++) {
+                    library.borrowBook(String.valueOf(i));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> borrower : borrowers) {
+            borrower.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(books, analytics.outOfStock());
+        assertEquals(Map.of(), analytics.copiesByAuthor().entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+    }
+
+    @Test
+    void rebuild_ShouldKeepChangesMadeDuringTheScan() {
+        Runnable[] duringScan = {() -> { }};
+        library = new Library() {
+            @Override
+            public CatalogueSnapshot snapshot() {
+                CatalogueSnapshot snapshot = super.snapshot();
+                return new CatalogueSnapshot(snapshot.getEpoch(), () -> {
+                    duringScan[0].run();
+                    return snapshot.books();
+                }, snapshot::close);
+            }
+        };
+        analytics = new CatalogueAnalytics(library);
+        library.addBook(new Book("1", "Title 1", "Author 1", 2001, 1));
+        library.addBook(new Book("2", "Title 2", "Author 1", 2002, 3));
+        duringScan[0] = () -> {
+            library.borrowBook("1");
+            library.addBook(new Book("3", "Title 3", "Author 2", 2003, 2));
+        };
+
+        analytics.rebuild();
+
+        assertEquals(Map.of("Author 1", 3L, "Author 2", 2L), analytics.copiesByAuthor());
+        assertEquals(1, analytics.outOfStock());
+        assertEquals(Map.of(2001, 1L, 2002, 1L, 2003, 1L), analytics.titlesByYear());
+    }
+}
@@ -0,0 +1,206 @@
+package com.identitye2e.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescingCacheTest {
+    private AtomicLong clock;
+    private List<Runnable> refreshes;
+    private CoalescingCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        refreshes = new ArrayList<>();
+        cache = new CoalescingCache("books", Duration.ofMinutes(10), Duration.ofMinutes(8), 100, refreshes::add, clock::get);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void get_ShouldLoadOnce_WhenConcurrentMissesForSameKey() throws Exception {
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.get("Author", () -> {
+                    Thread.sleep(100);
+                    return "v" + loads.incrementAndGet();
+                });
+            }));
+        }
+        start.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("v1", result.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_ShouldShareFailureWithoutCachingIt_WhenLoadThrows() {
+        assertThrows(Cache.ValueRetrievalException.class, () -> cache.get("123", () -> {
+            throw new IllegalStateException("not found");
+        }));
+
+        assertEquals("v1", cache.get("123", this::load));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_ShouldRefreshInBackground_WhenEntryIsNearExpiry() {
+        cache.get("123", this::load);
+
+        clock.addAndGet(Duration.ofMinutes(9).toNanos());
+        assertEquals("v1", cache.get("123", this::load));
+        assertEquals("v1", cache.get("123", this::load));
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        assertEquals("v2", cache.get("123", this::load));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_ShouldReload_WhenEntryHasExpired() {
+        cache.get("123", this::load);
+
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        assertNull(cache.get("123"));
+        assertEquals("v2", cache.get("123", this::load));
+        assertTrue(refreshes.isEmpty());
+    }
+
+    @Test
+    void refresh_ShouldNotRestoreEntry_WhenKeyWasEvictedMeanwhile() {
+        cache.get("123", this::load);
+        clock.addAndGet(Duration.ofMinutes(9).toNanos());
+        cache.get("123", this::load);
+
+        cache.evict("123");
+        refreshes.get(0).run();
+
+        assertNull(cache.get("123"));
+    }
+
+    @Test
+    void getAll_ShouldNotCacheBatch_WhenKeyWasEvictedDuringLoad() {
+        Map<String, Object> found = cache.getAll(List.of("1", "2"), keys -> {
+            cache.evict("1");
+            return Map.of("1", "old", "2", "two");
+        });
+
+        assertEquals(Map.of("1", "old", "2", "two"), found);
+        assertNull(cache.get("1"));
+        assertEquals("two", cache.get("2").get());
+    }
+
+    @Test
+    void getAll_ShouldLeaveOutAndNotCache_KeysTheLoaderDidNotFind() {
+        Map<String, Object> found = cache.getAll(List.of("1", "2"), keys -> Map.of("1", "one"));
+
+        assertEquals(Map.of("1", "one"), found);
+        assertNull(cache.get("2"));
+        assertEquals("v1", cache.get("2", this::load));
+    }
+
+    @Test
+    void getAll_ShouldShareLoad_WithConcurrentSingleKeyGet() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Map<String, Object>> batch = executor.submit(() -> cache.getAll(List.of("1"), keys -> {
+            loading.countDown();
+            await(release);
+            return Map.of("1", "batch");
+        }));
+        loading.await(10, TimeUnit.SECONDS);
+
+        Future<String> single = executor.submit(() -> cache.get("1", this::load));
+        release.countDown();
+
+        assertEquals(Map.of("1", "batch"), batch.get(10, TimeUnit.SECONDS));
+        assertEquals("batch", single.get(10, TimeUnit.SECONDS));
+        assertEquals(0, loads.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void put_ShouldEvictKeyThatWasNotHit_WhenCacheIsFull() {
+        CoalescingCache bounded = new CoalescingCache("books", Duration.ofMinutes(10), Duration.ofMinutes(8), 2, refreshes::add, clock::get);
+        bounded.put("1", "one");
+        bounded.put("2", "two");
+        bounded.get("1");
+
+        bounded.put("3", "three");
+
+        assertEquals(2, bounded.size());
+        assertEquals("one", bounded.get("1").get());
+        assertNull(bounded.get("2"));
+        assertEquals("three", bounded.get("3").get());
+    }
+
+    @Test
+    void get_ShouldKeepKeyThatIsLoading_WhenCacheIsFull() throws Exception {
+        CoalescingCache bounded = new CoalescingCache("books", Duration.ofMinutes(10), Duration.ofMinutes(8), 1, refreshes::add, clock::get);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> slow = executor.submit(() -> bounded.get("1", () -> {
+            loading.countDown();
+            await(release);
+            return "one";
+        }));
+        loading.await(10, TimeUnit.SECONDS);
+
+        bounded.put("2", "two");
+        release.countDown();
+
+        assertEquals("one", slow.get(10, TimeUnit.SECONDS));
+        assertEquals("one", bounded.get("1").get());
+        assertNull(bounded.get("2"));
+        executor.shutdown();
+    }
+
+    @Test
+    void put_ShouldSweepExpiredEntries_WhenCacheIsUnderItsBound() {
+        cache.put("1", "one");
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        cache.put("2", "two");
+
+        assertEquals(1, cache.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String load() {
+        return "v" + loads.incrementAndGet();
+    }
+}
@@ -0,0 +1,105 @@
+package com.identitye2e.cache;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.Library;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EncodedResponseCacheTest {
+    private Library library;
+    private EncodedResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        library = new Library();
+        cache = new EncodedResponseCache(library, 2);
+    }
+
+    @Test
+    void put_ShouldStoreEncodedResponse_WhenNothingChanged() {
+        long stamp = cache.stamp("123");
+
+        cache.put("123", body("one"), stamp);
+
+        assertNotNull(cache.get("123"));
+        assertArrayEquals(body("one"), cache.get("123").getBody());
+    }
+
+    @Test
+    void put_ShouldNotStoreEncodedResponse_WhenLibraryChangedSinceStamp() {
+        library.addBook(new Book("123", "Title 1", "Author 1", 2008, 2));
+        long stamp = cache.stamp("123");
+
+        library.borrowBook("123");
+        EncodedResponse response = cache.put("123", body("stale"), stamp);
+
+        assertNotNull(response);
+        assertNull(cache.get("123"));
+    }
+
+    @Test
+    void put_ShouldEvictEntryThatWasNotHit_WhenCacheIsFull() {
+        cache.put("1", body("one"), cache.stamp("1"));
+        cache.put("2", body("two"), cache.stamp("2"));
+        cache.get("1");
+
+        cache.put("3", body("three"), cache.stamp("3"));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("1"));
+        assertNull(cache.get("2"));
+        assertNotNull(cache.get("3"));
+    }
+
+    @Test
+    void put_ShouldStillAdmit_WhenAnotherBookChangedSinceStamp() {
+        library.addBook(new Book("123", "Title 1", "Author 1", 2008, 2));
+        library.addBook(new Book("456", "Title 2", "Author 2", 2009, 2));
+        long stamp = cache.stamp("123");
+
+        library.borrowBook("456");
+        cache.put("123", body("one"), stamp);
+
+        assertNotNull(cache.get("123"));
+    }
+
+    @Test
+    void libraryMutation_ShouldInvalidateEncodedResponse() {
+        library.addBook(new Book("123", "Title 1", "Author 1", 2008, 2));
+        cache.put("123", body("one"), cache.stamp("123"));
+
+        library.borrowBook("123");
+
+        assertNull(cache.get("123"));
+    }
+
+    @Test
+    void invalidate_ShouldDropEntry_WhenCachedUnderAnotherFormOfTheIsbn() {
+        library.addBook(new Book("9780134685991", "Effective Java", "Joshua Bloch", 2018, 2));
+        cache.put("978-0-13-468599-1", body("one"), cache.stamp("978-0-13-468599-1"));
+
+        assertNotNull(cache.get("0134685997"));
+        library.borrowBook("9780134685991");
+
+        assertNull(cache.get("978-0-13-468599-1"));
+    }
+
+    @Test
+    void matches_ShouldAcceptStrongWeakAndWildcardTags() {
+        EncodedResponse response = new EncodedResponse(body("one"));
+
+        assertTrue(response.matches(response.getEtag()));
+        assertTrue(response.matches("\"other\", W/" + response.getEtag()));
+        assertTrue(response.matches("*"));
+        assertFalse(response.matches("\"other\""));
+        assertFalse(response.matches(null));
+    }
+
+    private static byte[] body(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package com.identitye2e.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.identitye2e.model.Book;
+import com.identitye2e.model.CatalogueSnapshot;
+import com.identitye2e.model.Library;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ExportControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private Library library;
+
+    @Test
+    void export_ShouldStreamBooksAsOfSnapshot_WhenBooksChangeAfterwards() throws Exception {
+        library.addBook(new Book("export-1", "Export Title", "Export Author", 2024, 2));
+
+        MvcResult result = mockMvc.perform(get("/api/library/export"))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().exists("X-Snapshot-Epoch"))
+                .andReturn();
+        library.borrowBook("export-1");
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(containsString("\"isbn\":\"export-1\"")))
+                .andExpect(content().string(containsString("\"availableCopies\":2")));
+
+        library.removeBook("export-1");
+    }
+
+    @Test
+    void export_ShouldCloseSnapshot_WhenRequestCompletesBeforeBodyRuns() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        Library library = new Library() {
+            @Override
+            public CatalogueSnapshot snapshot() {
+                CatalogueSnapshot snapshot = super.snapshot();
+                return new CatalogueSnapshot(snapshot.getEpoch(), snapshot::books, () -> {
+                    closed.set(true);
+                    snapshot.close();
+                });
+            }
+        };
+        ExportController controller = new ExportController(library, new ObjectMapper());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.export(request);
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+        asyncManager.setTaskExecutor(task -> { }); // the body is never run, as when the request times out first
+        asyncManager.startCallableProcessing(() -> null);
+        assertFalse(closed.get());
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+
+        assertTrue(closed.get());
+    }
+}
@@ -1,18 +1,25 @@
 package com.identitye2e.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.identitye2e.cache.EncodedResponseCache;
+import com.identitye2e.idempotency.IdempotencyStore;
 import com.identitye2e.exceptions.BookNotFoundException;
 import com.identitye2e.exceptions.InsufficientCopiesException;
 import com.identitye2e.model.Book;
-import com.identitye2e.service.LibraryServiceImpl;
+import com.identitye2e.model.BookBatch;
+import com.identitye2e.model.BookPage;
+import com.identitye2e.service.LibraryService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.List;
 
@@ -28,11 +35,19 @@ public class LibraryControllerIT {
     private MockMvc mockMvc;
 
     @MockBean
-    private LibraryServiceImpl libraryService;
+    private LibraryService libraryService;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EncodedResponseCache responseCache;
+
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
+
     @Test
     public void addBook_ShouldReturnCreated_WhenBookIsAddedSuccessfully() throws Exception {
         Book book = new Book("1234567890", "Test Title", "Test Author", 2024, 2);
@@ -132,6 +147,78 @@ public class LibraryControllerIT {
                 .andExpect(jsonPath("$.data.availableCopies").value(book.getAvailableCopies()));
     }
 
+    @Test
+    void findBookByISBN_ShouldServeEncodedResponse_WhenIsbnIsRequestedAgain() throws Exception {
+        String isbn = "123456";
+        Book book = new Book(isbn, "Test Title", "Test Author", 2024, 2);
+
+        when(libraryService.findBookByISBN(isbn)).thenReturn(book);
+
+        MvcResult first = mockMvc.perform(get("/api/library/findBookByIsbn")
+                        .param("isbn", isbn))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn();
+
+        mockMvc.perform(get("/api/library/findBookByIsbn")
+                        .param("isbn", isbn))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, first.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andExpect(jsonPath("$.statusCode").value(200))
+                .andExpect(jsonPath("$.data.isbn").value(isbn));
+
+        verify(libraryService, times(1)).findBookByISBN(isbn);
+    }
+
+    @Test
+    void findBookByISBN_ShouldReturnNotModified_WhenETagMatches() throws Exception {
+        String isbn = "123456";
+        Book book = new Book(isbn, "Test Title", "Test Author", 2024, 2);
+
+        when(libraryService.findBookByISBN(isbn)).thenReturn(book);
+
+        String etag = mockMvc.perform(get("/api/library/findBookByIsbn")
+                        .param("isbn", isbn))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/library/findBookByIsbn")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .param("isbn", isbn))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    void findBookByISBN_ShouldReturnSmile_WhenClientPrefersIt() throws Exception {
+        String isbn = "123456";
+        Book book = new Book(isbn, "Test Title", "Test Author", 2024, 2);
+
+        when(libraryService.findBookByISBN(isbn)).thenReturn(book);
+
+        mockMvc.perform(get("/api/library/findBookByIsbn")
+                        .accept("application/json;q=0.5, application/x-jackson-smile")
+                        .param("isbn", isbn))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    void findBookByISBN_ShouldReturnJson_WhenClientRanksJsonFirst() throws Exception {
+        String isbn = "123456";
+        Book book = new Book(isbn, "Test Title", "Test Author", 2024, 2);
+
+        when(libraryService.findBookByISBN(isbn)).thenReturn(book);
+
+        mockMvc.perform(get("/api/library/findBookByIsbn")
+                        .accept("application/cbor;q=0.5, application/json, */*;q=0.1")
+                        .param("isbn", isbn))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.isbn").value(isbn));
+    }
+
     @Test
     void findBookByISBN_ShouldReturnBadRequest_WhenIsbnIsEmpty() throws Exception {
         String isbn = "";
@@ -145,6 +232,41 @@ public class LibraryControllerIT {
     }
 
 
+    @Test
+    void findBooksByISBNs_ShouldReturnFoundAndMissing() throws Exception {
+        List<String> isbns = List.of("123456", "999999");
+        Book book = new Book("123456", "Test Title", "Test Author", 2024, 2);
+
+        when(libraryService.findBooksByISBNs(isbns)).thenReturn(new BookBatch(List.of(book), List.of("999999")));
+
+        mockMvc.perform(post("/api/library/findBooksByIsbns")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(isbns)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.statusCode").value(200))
+                .andExpect(jsonPath("$.data.found[0].isbn").value("123456"))
+                .andExpect(jsonPath("$.data.missing[0]").value("999999"));
+    }
+
+    @Test
+    void findBooksByISBNs_ShouldReturnBadRequest_WhenIsbnsAreEmpty() throws Exception {
+        mockMvc.perform(post("/api/library/findBooksByIsbns")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.statusCode").value(400))
+                .andExpect(jsonPath("$.message").value("isbns is empty"));
+    }
+
+    @Test
+    void findBooksByISBNs_ShouldReturnBadRequest_WhenIsbnsContainNull() throws Exception {
+        mockMvc.perform(post("/api/library/findBooksByIsbns")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"123456\", null]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("isbns must not contain null"));
+    }
+
     @Test
     void findBooksByAuthor_ShouldReturnOk_WhenBooksAreFound() throws Exception {
         String author = "Author John";
@@ -172,6 +294,21 @@ public class LibraryControllerIT {
                 .andExpect(jsonPath("$.data[1].availableCopies").value(book2.getAvailableCopies()));
     }
 
+    @Test
+    void findBooksByAuthor_ShouldVaryByAccept_WhenBodyIsNegotiated() throws Exception {
+        String author = "Author John";
+        when(libraryService.findBooksByAuthor(author)).thenReturn(List.of(new Book("123456", "Test Title", author, 2024, 2)));
+
+        mockMvc.perform(get("/api/library/findBooksByAuthor")
+                        .param("author", author))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+        mockMvc.perform(get("/api/library/findBooksByAuthor")
+                        .param("author", ""))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().stringValues(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
     @Test
     void findBooksByAuthor_ShouldReturnBadRequest_WhenAuthorIsEmpty() throws Exception {
         String author = "";
@@ -198,6 +335,33 @@ public class LibraryControllerIT {
                 .andExpect(jsonPath("$.message").value("No books found for author: " + author));
     }
 
+    @Test
+    void findBooksByPublicationYear_ShouldReturnPage_WhenRangeIsValid() throws Exception {
+        Book book = new Book("123456", "Test Title", "Author John", 1995, 2);
+
+        when(libraryService.findBooksByPublicationYear("Author John", 1990, 2000, null, 50))
+                .thenReturn(new BookPage(List.of(book), "1995:123456"));
+
+        mockMvc.perform(get("/api/library/findBooksByYear")
+                        .param("author", "Author John")
+                        .param("fromYear", "1990")
+                        .param("toYear", "2000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.statusCode").value(200))
+                .andExpect(jsonPath("$.data.books[0].isbn").value("123456"))
+                .andExpect(jsonPath("$.data.next").value("1995:123456"));
+    }
+
+    @Test
+    void findBooksByPublicationYear_ShouldReturnBadRequest_WhenRangeIsInverted() throws Exception {
+        mockMvc.perform(get("/api/library/findBooksByYear")
+                        .param("fromYear", "2000")
+                        .param("toYear", "1990"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.statusCode").value(400))
+                .andExpect(jsonPath("$.message").value("fromYear is after toYear"));
+    }
+
     @Test
     void borrowBook_ShouldReturnOk_WhenBookIsBorrowed() throws Exception {
         String isbn = "123456";
@@ -214,6 +378,78 @@ public class LibraryControllerIT {
                 .andExpect(jsonPath("$.message").value("Book borrowed!"));
     }
 
+    @Test
+    void borrowBook_ShouldReplayOriginalResponse_WhenIdempotencyKeyIsRepeated() throws Exception {
+        String isbn = "123456";
+
+        when(libraryService.borrowBook(isbn)).thenReturn(true);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/library/borrowBook")
+                            .header(IdempotencyStore.HEADER, "borrow-retry-1")
+                            .param("isbn", isbn))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.message").value("Book borrowed!"));
+        }
+
+        verify(libraryService, times(1)).borrowBook(isbn);
+    }
+
+    @Test
+    void returnBook_ShouldReturnUnprocessable_WhenIdempotencyKeyIsReusedForAnotherRequest() throws Exception {
+        mockMvc.perform(post("/api/library/borrowBook")
+                        .header(IdempotencyStore.HEADER, "reused-key-1")
+                        .param("isbn", "123456"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/library/returnBook")
+                        .header(IdempotencyStore.HEADER, "reused-key-1")
+                        .param("isbn", "123456"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.statusCode").value(422));
+    }
+
+    @Test
+    void borrowBook_ShouldReplay_WhenRetryComesFromAnotherAddress() throws Exception {
+        String isbn = "123456";
+
+        when(libraryService.borrowBook(isbn)).thenReturn(true);
+
+        for (String address : List.of("10.0.0.1", "10.0.0.2")) {
+            mockMvc.perform(post("/api/library/borrowBook")
+                            .header(IdempotencyStore.HEADER, "moved-key-1")
+                            .param("isbn", isbn)
+                            .with(request -> {
+                                request.setRemoteAddr(address);
+                                return request;
+                            }))
+                    .andExpect(status().isOk());
+        }
+
+        verify(libraryService, times(1)).borrowBook(isbn);
+    }
+
+    @Test
+    void borrowBook_ShouldRunForEachUser_WhenUsersUseTheSameIdempotencyKey() throws Exception {
+        String isbn = "123456";
+
+        when(libraryService.borrowBook(isbn)).thenReturn(true);
+
+        for (String user : List.of("alice", "bob")) {
+            mockMvc.perform(post("/api/library/borrowBook")
+                            .header(IdempotencyStore.HEADER, "shared-key-1")
+                            .param("isbn", isbn)
+                            .with(request -> {
+                                request.setUserPrincipal(() -> user);
+                                return request;
+                            }))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(IdempotencyStore.REPLAYED_HEADER));
+        }
+
+        verify(libraryService, times(2)).borrowBook(isbn);
+    }
+
     @Test
     void borrowBook_ShouldReturnBadRequest_WhenIsbnIsEmpty() throws Exception {
         String isbn = "";
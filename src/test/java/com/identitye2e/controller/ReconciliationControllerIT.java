@@ -0,0 +1,66 @@
+package com.identitye2e.controller;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "library.reconciliation.max-upload=1KB")
+@AutoConfigureMockMvc
+public class ReconciliationControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookStore library;
+
+    @Test
+    void reconcile_ShouldCorrectCountsInBackground_WhenStockFileIsUploaded() throws Exception {
+        library.addBook(new Book("reconcile-1", "Reconcile Title", "Reconcile Author", 2020, 1));
+
+        mockMvc.perform(post("/api/library/reconciliation")
+                        .contentType("text/csv")
+                        .content("isbn,copies\nreconcile-1,3\n"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.data.source").value("upload"));
+
+        String status = "RUNNING";
+        for (int i = 0; i < 100 && status.equals("RUNNING"); i++) {
+            Thread.sleep(50);
+            MvcResult result = mockMvc.perform(get("/api/library/reconciliation"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            status = JsonPath.read(result.getResponse().getContentAsString(), "$.data.status");
+        }
+        assertEquals("COMPLETED", status);
+        assertEquals(3, library.findBookByISBN("reconcile-1").orElseThrow().getAvailableCopies());
+    }
+
+    @Test
+    void reconcile_ShouldReturnBadRequest_WhenStockFileIsMalformed() throws Exception {
+        mockMvc.perform(post("/api/library/reconciliation")
+                        .contentType("text/csv")
+                        .content("isbn,copies\nreconcile-1,three\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Stock line 2 has no copy count: reconcile-1,three"));
+    }
+
+    @Test
+    void reconcile_ShouldReturnPayloadTooLarge_WhenStockFileIsOverTheLimit() throws Exception {
+        mockMvc.perform(post("/api/library/reconciliation")
+                        .contentType("text/csv")
+                        .content("isbn,copies\n" + "reconcile-2,1\n".repeat(100)))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.statusCode").value(413));
+    }
+}
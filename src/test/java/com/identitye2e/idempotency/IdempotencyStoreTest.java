@@ -0,0 +1,211 @@
+package com.identitye2e.idempotency;
+
+import com.identitye2e.exceptions.IdempotencyKeyReusedException;
+import com.identitye2e.exceptions.IdempotencyStoreFullException;
+import com.identitye2e.response.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyStoreTest {
+    private static final String CLIENT = "127.0.0.1";
+
+    private AtomicLong clock;
+    private IdempotencyStore store;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        store = new IdempotencyStore(Duration.ofMinutes(10), 3, clock::get);
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void execute_ShouldReplayOriginalResponse_WhenKeyIsRepeated() {
+        ResponseEntity<Response> first = store.execute(CLIENT, "key-1", "borrowBook:123", this::borrow);
+        ResponseEntity<Response> second = store.execute(CLIENT, "key-1", "borrowBook:123", this::borrow);
+
+        assertEquals(1, executions.get());
+        assertSame(first.getBody(), second.getBody());
+        assertEquals(first.getStatusCode(), second.getStatusCode());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void execute_ShouldRunOnce_WhenDuplicatesAreSubmittedSimultaneously() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ResponseEntity<Response>>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return store.execute(CLIENT, "key-1", "borrowBook:123", () -> {
+                    sleep(50);
+                    return borrow();
+                });
+            }));
+        }
+        start.countDown();
+
+        Response original = null;
+        for (Future<ResponseEntity<Response>> result : results) {
+            Response body = result.get(10, TimeUnit.SECONDS).getBody();
+            original = original == null ? body : original;
+            assertSame(original, body);
+        }
+        executor.shutdown();
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_ShouldRunAgain_WhenEntryHasExpired() {
+        store.execute(CLIENT, "key-1", "borrowBook:123", this::borrow);
+
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+        store.execute(CLIENT, "key-1", "borrowBook:123", this::borrow);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void execute_ShouldEvictOldestEntries_WhenStoreIsFull() {
+        for (int i = 0; i < 5; i++) {
+            store.execute(CLIENT, "key-" + i, "borrowBook:123", this::borrow);
+        }
+
+        assertEquals(3, store.size());
+        store.execute(CLIENT, "key-4", "borrowBook:123", this::borrow);
+        assertEquals(5, executions.get());
+        store.execute(CLIENT, "key-0", "borrowBook:123", this::borrow);
+        assertEquals(6, executions.get());
+    }
+
+    @Test
+    void execute_ShouldReject_WhenKeyIsReusedForAnotherRequest() {
+        store.execute(CLIENT, "key-1", "borrowBook:123", this::borrow);
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> store.execute(CLIENT, "key-1", "returnBook:123", this::borrow));
+    }
+
+    @Test
+    void execute_ShouldNotRememberKey_WhenActionThrows() {
+        assertThrows(IllegalStateException.class, () -> store.execute(CLIENT, "key-1", "borrowBook:123", () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        store.execute(CLIENT, "key-1", "borrowBook:123", this::borrow);
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_ShouldAlwaysRun_WhenNoKeyIsGiven() {
+        store.execute(CLIENT, null, "borrowBook:123", this::borrow);
+        store.execute(CLIENT, null, "borrowBook:123", this::borrow);
+
+        assertEquals(2, executions.get());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void execute_ShouldKeepRunningRequest_WhenStoreIsFull() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<ResponseEntity<Response>> running = startBlocked(executor, "key-running", release);
+
+        for (int i = 0; i < 5; i++) {
+            store.execute(CLIENT, "key-" + i, "borrowBook:123", this::borrow);
+        }
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+        ResponseEntity<Response> retry = store.execute(CLIENT, "key-running", "borrowBook:123", this::borrow);
+
+        executor.shutdown();
+        assertEquals(6, executions.get());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void execute_ShouldRefuseNewKey_WhenStoreIsFullOfRunningRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<ResponseEntity<Response>>> running = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            running.add(startBlocked(executor, "key-running-" + i, release));
+        }
+
+        assertThrows(IdempotencyStoreFullException.class,
+                () -> store.execute(CLIENT, "key-new", "borrowBook:123", this::borrow));
+        release.countDown();
+        for (Future<ResponseEntity<Response>> result : running) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        store.execute(CLIENT, "key-new", "borrowBook:123", this::borrow);
+
+        executor.shutdown();
+        assertEquals(4, executions.get());
+    }
+
+    @Test
+    void execute_ShouldNotReplayAnotherClientsResponse_WhenKeysCollide() {
+        store.execute(CLIENT, "key-1", "borrowBook:123", this::borrow);
+        ResponseEntity<Response> other = store.execute("10.0.0.2", "key-1", "returnBook:456", this::borrow);
+
+        assertEquals(2, executions.get());
+        assertNull(other.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void fingerprint_ShouldDifferForDifferentFields_WhenTheirJoinedTextIsTheSame() {
+        assertNotEquals(IdempotencyStore.fingerprint("addBook", "a|b", "c"), IdempotencyStore.fingerprint("addBook", "a", "b|c"));
+        assertNotEquals(IdempotencyStore.fingerprint("addBook", null), IdempotencyStore.fingerprint("addBook", "null"));
+        assertEquals(IdempotencyStore.fingerprint("addBook", "a", 1), IdempotencyStore.fingerprint("addBook", "a", 1));
+    }
+
+    /* Starts a request that runs until release is counted down and waits until it is running */
+    private Future<ResponseEntity<Response>> startBlocked(ExecutorService executor, String key, CountDownLatch release)
+            throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<ResponseEntity<Response>> result = executor.submit(() -> store.execute(CLIENT, key, "borrowBook:123", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return borrow();
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private ResponseEntity<Response> borrow() {
+        executions.incrementAndGet();
+        return new ResponseEntity<>(new Response("Book borrowed!", HttpStatus.OK.value()), HttpStatus.OK);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
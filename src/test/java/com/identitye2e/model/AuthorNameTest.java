@@ -0,0 +1,28 @@
+package com.identitye2e.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthorNameTest {
+
+    @Test
+    void fold_ShouldJoinInitials_WhenWrittenWithDotsOrSpaces() {
+        assertEquals("jrr tolkien", AuthorName.fold("J. R. R. Tolkien"));
+        assertEquals("jrr tolkien", AuthorName.fold("J.R.R. Tolkien"));
+        assertEquals("jrr tolkien", AuthorName.fold("JRR Tolkien"));
+        assertEquals("jrr tolkien", AuthorName.fold("  jrr   TOLKIEN "));
+    }
+
+    @Test
+    void fold_ShouldDropAccentsAndPunctuation() {
+        assertEquals("gabriel garcia marquez", AuthorName.fold("Gabriel García Márquez"));
+        assertEquals("tolkien j", AuthorName.fold("Tolkien, J."));
+        assertEquals("oconnor", AuthorName.fold("O'Connor"));
+    }
+
+    @Test
+    void fold_ShouldReturnEmpty_WhenAuthorIsNull() {
+        assertEquals("", AuthorName.fold(null));
+    }
+}
@@ -0,0 +1,46 @@
+package com.identitye2e.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsbnTest {
+
+    @Test
+    void canonical_ShouldStripSeparators_WhenIsbn13IsValid() {
+        assertEquals("9780134685991", Isbn.canonical("978-0-13-468599-1"));
+        assertEquals("9780134685991", Isbn.canonical("978 0 13 468599 1"));
+        assertEquals("9780134685991", Isbn.canonical("9780134685991"));
+    }
+
+    @Test
+    void canonical_ShouldConvertToIsbn13_WhenIsbn10IsValid() {
+        assertEquals("9780134685991", Isbn.canonical("0-13-468599-7"));
+        assertEquals("9780134685991", Isbn.canonical("0134685997"));
+        assertEquals("9780804429573", Isbn.canonical("080442957X"));
+        assertEquals("9780804429573", Isbn.canonical("0-8044-2957-x"));
+    }
+
+    @Test
+    void canonical_ShouldKeepValueUnchanged_WhenChecksumIsInvalid() {
+        assertEquals("978-0-13-468599-2", Isbn.canonical("978-0-13-468599-2"));
+        assertEquals("0134685998", Isbn.canonical("0134685998"));
+    }
+
+    @Test
+    void canonical_ShouldKeepValueUnchanged_WhenNotAnIsbn() {
+        assertEquals("123", Isbn.canonical("123"));
+        assertEquals("herd-1", Isbn.canonical("herd-1"));
+        assertEquals("X134685997", Isbn.canonical("X134685997"));
+        assertEquals("", Isbn.canonical(""));
+        assertNull(Isbn.canonical(null));
+    }
+
+    @Test
+    void isValid_ShouldCheckChecksum() {
+        assertTrue(Isbn.isValid("978-0-13-468599-1"));
+        assertTrue(Isbn.isValid("080442957X"));
+        assertFalse(Isbn.isValid("978-0-13-468599-2"));
+        assertFalse(Isbn.isValid("123"));
+    }
+}
@@ -4,9 +4,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
 public class LibraryTest {
     private Library library;
@@ -59,6 +70,16 @@ public class LibraryTest {
         assertEquals("Author 1", foundBook.getAuthor());
     }
 
+    @Test
+    void findBooksByISBNs_ShouldReturnOnlyBooksThatExist() {
+        library.addBook(new Book("123", "Title 1", "Author 1", 2017, 3));
+        library.addBook(new Book("124", "Title 2", "Author 1", 2008, 3));
+
+        Map<String, Book> found = library.findBooksByISBNs(List.of("124", "999", "123"));
+
+        assertEquals(List.of("124", "123"), List.copyOf(found.keySet()));
+    }
+
     @Test
     void findBooksByAuthor_ShouldReturnBooksByAuthorFromCache() {
         String author = "Author 1";
@@ -129,4 +150,246 @@ public class LibraryTest {
         assertFalse(returned);
     }
 
+    @Test
+    void borrowBook_ShouldNeverOverBorrow_WhenBorrowedConcurrently() throws InterruptedException {
+        String isbn = "123";
+        library.addBook(new Book(isbn, "Title 1", "Author 1", 2008, 5_000));
+        AtomicInteger borrowed = new AtomicInteger();
+
+        runConcurrently(8, 1_000, () -> {
+            if (library.borrowBook(isbn)) {
+                borrowed.incrementAndGet();
+            }
+        });
+
+        assertEquals(5_000, borrowed.get());
+        assertEquals(0, library.findBookByISBN(isbn).get().getAvailableCopies());
+    }
+
+    @Test
+    void borrowAndReturn_ShouldKeepExactCount_WhenBookIsStriped() throws InterruptedException {
+        String isbn = "123";
+        library.addBook(new Book(isbn, "Title 1", "Author 1", 2008, 100));
+        assertTrue(library.stripe(isbn));
+
+        runConcurrently(8, 1_000, () -> {
+            if (library.borrowBook(isbn)) {
+                library.returnBook(isbn);
+            }
+        });
+
+        assertTrue(library.stripeCount(isbn) > 1);
+        assertEquals(100, library.findBookByISBN(isbn).get().getAvailableCopies());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(library.borrowBook(isbn));
+        }
+        assertFalse(library.borrowBook(isbn));
+    }
+
+    @Test
+    void borrowBook_ShouldReportRunningOutOnce_WhenStripedBookIsEmptiedConcurrently() throws InterruptedException {
+        String isbn = "123";
+        library.addBook(new Book(isbn, "Title 1", "Author 1", 2008, 100));
+        assertTrue(library.stripe(isbn));
+        AtomicInteger emptied = new AtomicInteger();
+        AtomicInteger taken = new AtomicInteger();
+        library.addListener(new LibraryListener() {
+            @Override
+            public void copiesChanged(Book book, int from, int to) {
+                taken.addAndGet(from - to);
+                if (to == 0) {
+                    emptied.incrementAndGet();
+                }
+            }
+        });
+
+        runConcurrently(8, 50, () -> library.borrowBook(isbn));
+
+        assertEquals(100, taken.get());
+        assertEquals(1, emptied.get());
+    }
+
+    @Test
+    void correctCopies_ShouldKeepConcurrentBorrows_WhenBookIsStriped() throws InterruptedException {
+        String isbn = "123";
+        library.addBook(new Book(isbn, "Title 1", "Author 1", 2008, 100));
+        assertTrue(library.stripe(isbn));
+
+        assertTrue(library.correctCopies(isbn, 100, 60));
+        runConcurrently(8, 5, () -> library.borrowBook(isbn));
+
+        assertEquals(20, library.findBookByISBN(isbn).get().getAvailableCopies());
+        assertFalse(library.correctCopies(isbn, 60, 10));
+    }
+
+    @Test
+    void contentionStats_ShouldBeEmpty_WhenBooksAreUncontended() {
+        library.addBook(new Book("123", "Title 1", "Author 1", 2008, 3));
+
+        library.borrowBook("123");
+        library.returnBook("123");
+
+        assertTrue(library.contentionStats().isEmpty());
+    }
+
+    @Test
+    void contentionStats_ShouldForgetContention_WhenSamplingWindowHasPassed() throws InterruptedException {
+        AtomicLong clock = new AtomicLong();
+        library = new Library(clock::get);
+        library.addBook(new Book("123", "Title 1", "Author 1", 2008, 1_000_000));
+
+        runConcurrently(8, 20_000, () -> {
+            library.borrowBook("123");
+            library.returnBook("123");
+        });
+        assumeFalse(library.contentionStats().isEmpty(), "no CAS collisions on this machine");
+
+        clock.addAndGet(Library.CONTENTION_WINDOW_NANOS);
+
+        assertTrue(library.contentionStats().isEmpty());
+    }
+
+    @Test
+    void contentionStats_ShouldKeepStripedBook_AfterSamplingWindowHasPassed() {
+        AtomicLong clock = new AtomicLong();
+        library = new Library(clock::get);
+        library.addBook(new Book("123", "Title 1", "Author 1", 2008, 100));
+        library.addBook(new Book("456", "Title 2", "Author 2", 2008, 100));
+
+        library.contend("123", Library.STRIPE_CONTENTION);
+        library.contend("456", Library.REPORT_CONTENTION);
+
+        assertTrue(library.stripeCount("123") > 1);
+        assertEquals(1, library.stripeCount("456"));
+        assertEquals(List.of("123", "456"), library.contentionStats().stream().map(BookContention::getIsbn).toList());
+
+        clock.addAndGet(Library.CONTENTION_WINDOW_NANOS);
+        assertTrue(library.borrowBook("123"));
+        assertTrue(library.returnBook("123"));
+
+        List<BookContention> stats = library.contentionStats();
+        assertEquals(List.of("123"), stats.stream().map(BookContention::getIsbn).toList());
+        assertEquals(library.stripeCount("123"), stats.get(0).getStripes());
+    }
+
+    @Test
+    void snapshot_ShouldKeepPointInTimeView_WhenLibraryChangesAfterwards() {
+        library.addBook(new Book("1", "Title 1", "Author 1", 2008, 2));
+        library.addBook(new Book("2", "Title 2", "Author 2", 2009, 1));
+
+        try (CatalogueSnapshot snapshot = library.snapshot()) {
+            library.borrowBook("1");
+            library.removeBook("2");
+            library.addBook(new Book("3", "Title 3", "Author 3", 2010, 5));
+            library.addBook(new Book("1", "Title 1 revised", "Author 1", 2008, 7));
+
+            Map<String, Book> seen = snapshot.books().collect(Collectors.toMap(Book::getIsbn, book -> book));
+
+            assertEquals(Set.of("1", "2"), seen.keySet());
+            assertEquals("Title 1", seen.get("1").getTitle());
+            assertEquals(2, seen.get("1").getAvailableCopies());
+            assertEquals(1, seen.get("2").getAvailableCopies());
+        }
+
+        assertFalse(library.findBookByISBN("2").isPresent());
+        assertEquals(7, library.findBookByISBN("1").get().getAvailableCopies());
+        try (CatalogueSnapshot snapshot = library.snapshot()) {
+            assertEquals(Set.of("1", "3"), snapshot.books().map(Book::getIsbn).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void snapshot_ShouldSeeConsistentCopies_WhileBooksAreBorrowedConcurrently() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            library.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2000, 200));
+        }
+        library.stripe("0");
+
+        try (CatalogueSnapshot snapshot = library.snapshot()) {
+            runConcurrently(4, 500, () -> {
+                String isbn = String.valueOf(ThreadLocalRandom.current().nextInt(100));
+                if (library.borrowBook(isbn)) {
+                    library.returnBook(isbn);
+                }
+                library.borrowBook(isbn);
+            });
+
+            assertEquals(20_000, snapshot.books().mapToInt(Book::getAvailableCopies).sum());
+            assertTrue(snapshot.books().allMatch(book -> book.getAvailableCopies() == 200));
+        }
+        assertEquals(20_000 - 2_000, library.books().mapToInt(Book::getAvailableCopies).sum());
+    }
+
+    @Test
+    void books_ShouldNotBeAffected_WhenReturnedBookValueIsHeldByCaller() {
+        library.addBook(new Book("123", "Title 1", "Author 1", 2008, 2));
+        Book before = library.findBookByISBN("123").get();
+
+        library.borrowBook("123");
+
+        assertEquals(2, before.getAvailableCopies());
+        assertEquals(1, library.findBookByISBN("123").get().getAvailableCopies());
+    }
+
+    @Test
+    void findBooksByPublicationYear_ShouldReturnRangeInYearOrder_AcrossPages() {
+        library.addBook(new Book("5", "Title 5", "Author 1", 2001, 1));
+        library.addBook(new Book("1", "Title 1", "Author 1", 1995, 1));
+        library.addBook(new Book("2", "Title 2", "Author 2", 1995, 1));
+        library.addBook(new Book("3", "Title 3", "author 1", 1990, 1));
+        library.addBook(new Book("4", "Title 4", "Author 1", 1989, 1));
+        library.addBook(new Book("6", "Title 6", "Author 1", 2000, 1));
+
+        BookPage first = library.findBooksByPublicationYear(null, 1990, 2000, null, 2);
+        BookPage second = library.findBooksByPublicationYear(null, 1990, 2000, first.getNext(), 2);
+
+        assertEquals(List.of("3", "1"), first.getBooks().stream().map(Book::getIsbn).toList());
+        assertEquals(List.of("2", "6"), second.getBooks().stream().map(Book::getIsbn).toList());
+        assertNull(second.getNext());
+    }
+
+    @Test
+    void findBooksByPublicationYear_ShouldFilterByAuthorIgnoringCase() {
+        library.addBook(new Book("1", "Title 1", "Author 1", 1995, 1));
+        library.addBook(new Book("2", "Title 2", "Author 2", 1995, 1));
+        library.addBook(new Book("3", "Title 3", "author 1", 1990, 1));
+
+        BookPage page = library.findBooksByPublicationYear("AUTHOR 1", 1990, 2000, null, 10);
+
+        assertEquals(List.of("3", "1"), page.getBooks().stream().map(Book::getIsbn).toList());
+    }
+
+    @Test
+    void findBooksByPublicationYear_ShouldFollowChanges_WhenBooksAreReplacedOrRemoved() {
+        library.addBook(new Book("1", "Title 1", "Author 1", 1995, 1));
+        library.addBook(new Book("2", "Title 2", "Author 1", 1996, 1));
+
+        library.addBook(new Book("1", "Title 1", "Author 1", 2010, 1));
+        library.removeBook("2");
+
+        assertTrue(library.findBooksByPublicationYear(null, 1990, 2000, null, 10).getBooks().isEmpty());
+        assertEquals(1, library.findBooksByPublicationYear("Author 1", 2010, 2010, null, 10).getBooks().size());
+    }
+
+    @Test
+    void findBooksByPublicationYear_ShouldRejectInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> library.findBooksByPublicationYear(null, 1990, 2000, "bad", 10));
+    }
+
+    private static void runConcurrently(int threads, int iterations, Runnable task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    task.run();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    }
 }
@@ -0,0 +1,127 @@
+package com.identitye2e.reconciliation;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.Library;
+import com.identitye2e.model.LibraryListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InventoryReconcilerTest {
+    private Library library;
+
+    @BeforeEach
+    void setUp() {
+        library = new Library();
+    }
+
+    @Test
+    void reconcile_ShouldCorrectDriftedCounts() {
+        library.addBook(new Book("1", "Title 1", "Author 1", 2008, 3));
+        library.addBook(new Book("2", "Title 2", "Author 2", 2009, 0));
+        library.addBook(new Book("3", "Title 3", "Author 3", 2010, 2));
+
+        ReconciliationReport report = reconciler(true).reconcile("test", Map.of("1", 3, "2", 4, "3", 1));
+
+        assertEquals(ReconciliationReport.Status.COMPLETED, report.getStatus());
+        assertEquals(3, report.getBooksChecked());
+        assertEquals(2, report.getCorrections());
+        assertEquals(3, library.findBookByISBN("1").get().getAvailableCopies());
+        assertEquals(4, library.findBookByISBN("2").get().getAvailableCopies());
+        assertEquals(1, library.findBookByISBN("3").get().getAvailableCopies());
+    }
+
+    @Test
+    void reconcile_ShouldReportBooksMissingOnEitherSide() {
+        library.addBook(new Book("1", "Title 1", "Author 1", 2008, 3));
+
+        ReconciliationReport report = reconciler(true).reconcile("test", Map.of("2", 4));
+
+        Map<Discrepancy.Kind, String> found = report.getDiscrepancies().stream()
+                .collect(Collectors.toMap(Discrepancy::getKind, Discrepancy::getIsbn));
+        assertEquals(Map.of(Discrepancy.Kind.NOT_IN_STOCK_FILE, "1", Discrepancy.Kind.NOT_IN_CATALOGUE, "2"), found);
+        assertEquals(0, report.getCorrections());
+    }
+
+    @Test
+    void reconcile_ShouldOnlyReport_WhenCorrectionIsOff() {
+        library.addBook(new Book("1", "Title 1", "Author 1", 2008, 3));
+
+        ReconciliationReport report = reconciler(false).reconcile("test", Map.of("1", 5));
+
+        Discrepancy discrepancy = report.getDiscrepancies().get(0);
+        assertEquals(Discrepancy.Kind.COUNT_MISMATCH, discrepancy.getKind());
+        assertEquals(3, discrepancy.getRecorded());
+        assertEquals(5, discrepancy.getCounted());
+        assertFalse(discrepancy.isCorrected());
+        assertEquals(3, library.findBookByISBN("1").get().getAvailableCopies());
+    }
+
+    @Test
+    void reconcile_ShouldCheckEveryChunk_WhenCatalogueSpansManyChunks() {
+        Map<String, Integer> stock = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            library.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2000, 5));
+            stock.put(String.valueOf(i), i % 10 == 0 ? 2 : 5);
+        }
+
+        ReconciliationReport report = reconciler(true).reconcile("test", stock);
+
+        assertEquals(2_000, report.getBooksChecked());
+        assertEquals(20, report.getChunks());
+        assertEquals(20, report.getChunksDone());
+        assertEquals(200, report.getCorrections());
+        assertEquals(2, library.findBookByISBN("990").get().getAvailableCopies());
+    }
+
+    @Test
+    void reconcile_ShouldNotLoseBorrows_WhenTheyRunAlongside() throws Exception {
+        Map<String, Integer> stock = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            library.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2000, 10));
+            stock.put(String.valueOf(i), 50);
+        }
+        Map<String, Integer> deltas = new ConcurrentHashMap<>();
+        library.addListener(new LibraryListener() {
+            @Override
+            public void copiesChanged(Book book, int delta) {
+                deltas.merge(book.getIsbn(), delta, Integer::sum);
+            }
+        });
+        AtomicBoolean reconciled = new AtomicBoolean();
+        ExecutorService borrower = Executors.newSingleThreadExecutor();
+        Future<?> borrows = borrower.submit(() -> {
+            while (!reconciled.get()) {
+                for (int i = 0; i < 500; i++) {
+                    library.borrowBook(String.valueOf(i));
+                }
+            }
+        });
+
+        reconciler(true).reconcile("test", stock);
+        reconciled.set(true);
+        borrows.get(10, TimeUnit.SECONDS);
+        borrower.shutdown();
+
+        // A correction that overwrote a borrow would leave the count out of step with the changes that were reported
+        for (int i = 0; i < 500; i++) {
+            String isbn = String.valueOf(i);
+            assertEquals(10 + deltas.getOrDefault(isbn, 0), library.findBookByISBN(isbn).get().getAvailableCopies());
+        }
+    }
+
+    private InventoryReconciler reconciler(boolean correct) {
+        return new InventoryReconciler(library, "", 100, 1.0, correct, 1000);
+    }
+}
@@ -0,0 +1,35 @@
+package com.identitye2e.reconciliation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockFileTest {
+
+    @Test
+    void parse_ShouldSkipHeaderAndComments() throws Exception {
+        Map<String, Integer> stock = StockFile.parse(new StringReader("isbn,copies\n# shelf A\n\n123,4\n456, 0\n"));
+
+        assertEquals(Map.of("123", 4, "456", 0), stock);
+    }
+
+    @Test
+    void parse_ShouldAddUpShelves_WhenIsbnIsCountedTwice() throws Exception {
+        Map<String, Integer> stock = StockFile.parse(new StringReader("978-0-306-40615-7,2\n0306406152,3\n"));
+
+        assertEquals(Map.of("9780306406157", 5), stock);
+    }
+
+    @Test
+    void parse_ShouldRejectFile_WhenLineIsMalformed() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> StockFile.parse(new StringReader("123,4\n456,four\n")));
+
+        assertEquals("Stock line 2 has no copy count: 456,four", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> StockFile.parse(new StringReader("123\n")));
+        assertThrows(IllegalArgumentException.class, () -> StockFile.parse(new StringReader("123,-1\n")));
+    }
+}
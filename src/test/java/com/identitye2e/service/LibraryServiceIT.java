@@ -0,0 +1,80 @@
+package com.identitye2e.service;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+public class LibraryServiceIT {
+
+    private static final int THREADS = 32;
+
+    @SpyBean
+    private BookStore library;
+
+    @Autowired
+    private LibraryService libraryService;
+
+    @Test
+    void findBooksByAuthor_ShouldScanLibraryOnce_WhenConcurrentRequestsMiss() throws Exception {
+        library.addBook(new Book("herd-1", "Herd Title 1", "Herd Author", 2020, 5));
+        library.addBook(new Book("herd-2", "Herd Title 2", "Herd Author", 2021, 5));
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return invocation.callRealMethod();
+        }).when(library).findBooksByAuthor("Herd Author");
+
+        List<Future<List<Book>>> results = herd(() -> libraryService.findBooksByAuthor("Herd Author"));
+
+        for (Future<List<Book>> result : results) {
+            assertEquals(2, result.get(10, TimeUnit.SECONDS).size());
+        }
+        verify(library, times(1)).findBooksByAuthor("Herd Author");
+    }
+
+    @Test
+    void findBookByISBN_ShouldLoadOnce_WhenConcurrentRequestsMiss() throws Exception {
+        library.addBook(new Book("herd-3", "Herd Title 3", "Other Herd Author", 2022, 5));
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return invocation.callRealMethod();
+        }).when(library).findBookByISBN("herd-3");
+
+        List<Future<Book>> results = herd(() -> libraryService.findBookByISBN("herd-3"));
+
+        for (Future<Book> result : results) {
+            assertEquals("Herd Title 3", result.get(10, TimeUnit.SECONDS).getTitle());
+        }
+        verify(library, times(1)).findBookByISBN("herd-3");
+    }
+
+    private <T> List<Future<T>> herd(Callable<T> request) {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return request.call();
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        return results;
+    }
+}
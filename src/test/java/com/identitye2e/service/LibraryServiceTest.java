@@ -1,14 +1,21 @@
 package com.identitye2e.service;
 
+import com.identitye2e.cache.CoalescingCache;
 import com.identitye2e.exceptions.BookNotFoundException;
 import com.identitye2e.exceptions.InsufficientCopiesException;
 import com.identitye2e.model.Book;
+import com.identitye2e.model.BookBatch;
 import com.identitye2e.model.Library;
+import com.identitye2e.tracing.OperationTracer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,10 +30,16 @@ class LibraryServiceTest {
         @InjectMocks
         private LibraryServiceImpl service;
 
+        private CacheManager cacheManager;
+
         @BeforeEach
         void setup() {
             library = new Library();
-            service = new LibraryServiceImpl(library);
+            SimpleCacheManager caches = new SimpleCacheManager();
+            caches.setCaches(List.of(new CoalescingCache("books", Duration.ofMinutes(10), Duration.ofMinutes(8), 1000, Runnable::run)));
+            caches.afterPropertiesSet();
+            cacheManager = caches;
+            service = new LibraryServiceImpl(library, cacheManager, OperationTracer.disabled());
         }
 
     @Test
@@ -109,6 +122,30 @@ class LibraryServiceTest {
     }
 
 
+    @Test
+    void findBooksByISBNs_ShouldReturnFoundAndMissing_InRequestOrder() {
+        service.addBook(new Book("111", "Java", "Author", 2020, 5));
+        service.addBook(new Book("222", "Spring", "Author", 2021, 5));
+
+        BookBatch batch = service.findBooksByISBNs(List.of("222", "999", "111", "222"));
+
+        assertEquals(List.of("222", "111"), batch.getFound().stream().map(Book::getIsbn).toList());
+        assertEquals(List.of("999"), batch.getMissing());
+    }
+
+    @Test
+    void findBooksByISBNs_ShouldServeCachedBooks_AndCacheMisses() {
+        Book cached = new Book("111", "Cached", "Author", 2020, 5);
+        Cache cache = cacheManager.getCache("books");
+        cache.put("111", cached);
+        service.addBook(new Book("222", "Spring", "Author", 2021, 5));
+
+        BookBatch batch = service.findBooksByISBNs(List.of("111", "222"));
+
+        assertSame(cached, batch.getFound().get(0));
+        assertNotNull(cache.get("222"), "Books loaded from the library should be put in the cache");
+    }
+
     @Test
     void findBookByAuthor_ShouldFindBookByAuthor_WhenBookIsFoundSuccessfully() {
         String author = "Author Name";
@@ -0,0 +1,71 @@
+package com.identitye2e.startup;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.Isbn;
+import com.identitye2e.service.LibraryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "library.warm-up.iterations=50")
+@ActiveProfiles("fast-startup")
+public class FastStartupIT {
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private BookStore library;
+
+    @Autowired
+    private LibraryService libraryService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void startup_ShouldCreateLibraryListenersEagerly() {
+        assertTrue(context.getBeanFactory().containsSingleton("booksCacheEvictor"));
+        assertTrue(context.getBeanFactory().containsSingleton("catalogueAnalytics"));
+        assertTrue(context.getBeanFactory().containsSingleton("encodedResponseCache"));
+    }
+
+    @Test
+    void warmUp_ShouldNotWriteToTheStore() {
+        assertTrue(library.findBookByISBN("warm-up-0000000000").isEmpty());
+        assertTrue(library.findBooksByAuthor("warm-up").isEmpty());
+    }
+
+    @Test
+    void warmUp_ShouldGoThroughTheDispatcher() {
+        // The DispatcherServlet initialises its handler mappings on the first request it serves
+        assertNotNull(context.getBean(DispatcherServlet.class).getHandlerMappings());
+    }
+
+    @Test
+    void warmUp_ShouldLookUpStoredBooksThroughTheBooksCache() throws Exception {
+        library.addBook(new Book("9780140449136", "Warm Title", "Warm Author", 2020, 3));
+
+        context.getBean(WarmUpRunner.class).run(null);
+
+        assertNotNull(cacheManager.getCache("books").get(Isbn.canonical("9780140449136")));
+        assertEquals(3, library.findBookByISBN("9780140449136").orElseThrow().getAvailableCopies());
+    }
+
+    @Test
+    void findBookByISBN_ShouldNotServeStaleCopies_WhenBorrowedUnderLazyInit() {
+        library.addBook(new Book("9780306406157", "Lazy Title", "Lazy Author", 2020, 3));
+        assertEquals(3, libraryService.findBookByISBN("9780306406157").getAvailableCopies());
+
+        library.borrowBook("9780306406157");
+
+        assertEquals(2, libraryService.findBookByISBN("9780306406157").getAvailableCopies());
+    }
+}
@@ -0,0 +1,37 @@
+package com.identitye2e.store;
+
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.Library;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookStoreConfigTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void bookStore_ShouldPickTheConfiguredEngine() {
+        try (BookStore memory = create("memory");
+             BookStore disk = create("disk");
+             BookStore tiered = create("tiered")) {
+            assertInstanceOf(Library.class, memory);
+            assertInstanceOf(LogStructuredBookStore.class, disk);
+            assertInstanceOf(TieredBookStore.class, tiered);
+        }
+    }
+
+    @Test
+    void bookStore_ShouldFail_WhenEngineIsUnknown() {
+        assertThrows(IllegalArgumentException.class, () -> create("dsik"));
+    }
+
+    private BookStore create(String store) {
+        return new BookStoreConfig().bookStore(store, directory.resolve("disk"), 1 << 16, 10,
+                directory.resolve("cold").toString(), 1 << 16);
+    }
+}
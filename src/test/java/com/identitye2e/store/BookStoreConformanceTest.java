@@ -0,0 +1,320 @@
+package com.identitye2e.store;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookPage;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.CatalogueSnapshot;
+import com.identitye2e.model.LibraryListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/* Behaviour every BookStore engine must share. Each engine gets a subclass that says how to create it. */
+public abstract class BookStoreConformanceTest {
+    private static final int PERFORMANCE_BOOKS = 20_000;
+
+    protected BookStore store;
+
+    protected abstract BookStore createStore() throws Exception;
+
+    @BeforeEach
+    void setUpStore() throws Exception {
+        store = createStore();
+    }
+
+    @AfterEach
+    void closeStore() {
+        store.close();
+    }
+
+    @Test
+    void addBook_ShouldBeFoundByIsbn_WhenAdded() {
+        store.addBook(new Book("123", "Title 1", "Author 1", 2008, 2));
+
+        Book book = store.findBookByISBN("123").orElseThrow();
+
+        assertEquals("Title 1", book.getTitle());
+        assertEquals("Author 1", book.getAuthor());
+        assertEquals(2008, book.getPublicationYear());
+        assertEquals(2, book.getAvailableCopies());
+    }
+
+    @Test
+    void addBook_ShouldReplaceBook_WhenIsbnExists() {
+        store.addBook(new Book("123", "Title 1", "Author 1", 2008, 2));
+        store.addBook(new Book("123", "Title 2", "Author 2", 2010, 5));
+
+        assertEquals("Title 2", store.findBookByISBN("123").orElseThrow().getTitle());
+        assertEquals(1, store.books().count());
+        assertTrue(store.findBooksByAuthor("Author 1").isEmpty());
+        assertEquals(1, store.findBooksByPublicationYear(null, 2010, 2010, null, 10).getBooks().size());
+    }
+
+    @Test
+    void removeBook_ShouldForgetBook_WhenRemoved() {
+        store.addBook(new Book("123", "Title 1", "Author 1", 2008, 2));
+
+        store.removeBook("123");
+        store.removeBook("missing");
+
+        assertTrue(store.findBookByISBN("123").isEmpty());
+        assertEquals(0, store.books().count());
+        assertTrue(store.findBooksByPublicationYear(null, 2000, 2020, null, 10).getBooks().isEmpty());
+    }
+
+    @Test
+    void findBooksByISBNs_ShouldKeepRequestOrderAndSkipMissing() {
+        store.addBook(new Book("1", "Title 1", "Author 1", 2001, 1));
+        store.addBook(new Book("2", "Title 2", "Author 2", 2002, 1));
+
+        Map<String, Book> found = store.findBooksByISBNs(List.of("2", "missing", "1"));
+
+        assertEquals(List.of("2", "1"), new ArrayList<>(found.keySet()));
+    }
+
+    @Test
+    void findBooksByAuthor_ShouldIgnoreCase() {
+        store.addBook(new Book("1", "Title 1", "Jane Doe", 2001, 1));
+        store.addBook(new Book("2", "Title 2", "jane doe", 2002, 1));
+        store.addBook(new Book("3", "Title 3", "John Doe", 2003, 1));
+
+        Set<String> isbns = store.findBooksByAuthor("JANE DOE").stream().map(Book::getIsbn).collect(Collectors.toSet());
+
+        assertEquals(Set.of("1", "2"), isbns);
+    }
+
+    @Test
+    void findBookByISBN_ShouldMatchAnyFormOfTheIsbn() {
+        store.addBook(new Book("978-0-13-468599-1", "Effective Java", "Joshua Bloch", 2018, 2));
+
+        assertTrue(store.findBookByISBN("9780134685991").isPresent());
+        assertTrue(store.findBookByISBN("0-13-468599-7").isPresent());
+        assertTrue(store.findBookByISBN("978-0-13-468599-2").isEmpty());
+        assertEquals(List.of("0134685997"), new ArrayList<>(store.findBooksByISBNs(List.of("0134685997")).keySet()));
+        assertTrue(store.borrowBook("0134685997"));
+
+        store.addBook(new Book("9780134685991", "Effective Java", "Joshua Bloch", 2018, 5));
+        assertEquals(1, store.books().count());
+
+        store.removeBook("0-13-468599-7");
+        assertTrue(store.findBookByISBN("978-0-13-468599-1").isEmpty());
+    }
+
+    @Test
+    void findBooksByAuthor_ShouldMatchFoldedName() {
+        store.addBook(new Book("1", "The Hobbit", "J. R. R. Tolkien", 1937, 1));
+        store.addBook(new Book("2", "The Silmarillion", "JRR Tolkien", 1977, 1));
+        store.addBook(new Book("3", "Cien años de soledad", "Gabriel García Márquez", 1967, 1));
+
+        assertEquals(2, store.findBooksByAuthor("J.R.R. Tolkien").size());
+        assertEquals(1, store.findBooksByAuthor("gabriel garcia marquez").size());
+        assertEquals(2, store.findBooksByPublicationYear("jrr tolkien", 1900, 2000, null, 10).getBooks().size());
+    }
+
+    @Test
+    void findBooksByAuthor_ShouldFollowAuthor_WhenBookIsReplaced() {
+        store.addBook(new Book("1", "The Hobbit", "J. R. R. Tolkien", 1937, 1));
+        store.addBook(new Book("1", "The Hobbit", "JRR Tolkien", 1937, 1));
+
+        assertEquals("JRR Tolkien", store.findBooksByAuthor("jrr tolkien").get(0).getAuthor());
+        assertEquals(1, store.findBooksByAuthor("jrr tolkien").size());
+
+        store.addBook(new Book("1", "The Hobbit", "Someone Else", 1937, 1));
+
+        assertTrue(store.findBooksByAuthor("jrr tolkien").isEmpty());
+        assertEquals(1, store.findBooksByAuthor("someone else").size());
+    }
+
+    @Test
+    void findBooksByPublicationYear_ShouldPageInYearThenIsbnOrder() {
+        for (int i = 0; i < 5; i++) {
+            store.addBook(new Book("isbn-" + i, "Title " + i, i % 2 == 0 ? "Even" : "Odd", 2000 + (4 - i), 1));
+        }
+
+        BookPage first = store.findBooksByPublicationYear(null, 2000, 2003, null, 2);
+        BookPage second = store.findBooksByPublicationYear(null, 2000, 2003, first.getNext(), 2);
+        BookPage even = store.findBooksByPublicationYear("even", 2000, 2004, null, 10);
+
+        assertEquals(List.of("isbn-4", "isbn-3"), isbns(first));
+        assertEquals(List.of("isbn-2", "isbn-1"), isbns(second));
+        assertNull(second.getNext());
+        assertEquals(List.of("isbn-4", "isbn-2", "isbn-0"), isbns(even));
+        assertThrows(IllegalArgumentException.class, () -> store.findBooksByPublicationYear(null, 2000, 2003, "bad", 2));
+    }
+
+    @Test
+    void borrowBook_ShouldTakeCopiesUntilNoneLeft() {
+        store.addBook(new Book("123", "Title 1", "Author 1", 2008, 2));
+
+        assertTrue(store.borrowBook("123"));
+        assertTrue(store.borrowBook("123"));
+        assertFalse(store.borrowBook("123"));
+        assertFalse(store.borrowBook("missing"));
+
+        assertEquals(0, store.findBookByISBN("123").orElseThrow().getAvailableCopies());
+    }
+
+    @Test
+    void returnBook_ShouldAddCopy_WhenBookHasCopies() {
+        store.addBook(new Book("123", "Title 1", "Author 1", 2008, 1));
+        store.addBook(new Book("456", "Title 2", "Author 2", 2008, 0));
+
+        assertTrue(store.returnBook("123"));
+        assertFalse(store.returnBook("456"));
+        assertFalse(store.returnBook("missing"));
+
+        assertEquals(2, store.findBookByISBN("123").orElseThrow().getAvailableCopies());
+    }
+
+    @Test
+    void correctCopies_ShouldSetCount_WhenCountIsStillExpected() {
+        store.addBook(new Book("123", "Title 1", "Author 1", 2008, 4));
+        AtomicInteger delta = new AtomicInteger();
+        store.addListener(new LibraryListener() {
+            @Override
+            public void copiesChanged(Book book, int change) {
+                delta.addAndGet(change);
+            }
+        });
+
+        assertTrue(store.correctCopies("123", 4, 1));
+
+        assertEquals(1, store.findBookByISBN("123").orElseThrow().getAvailableCopies());
+        assertEquals(-3, delta.get());
+    }
+
+    @Test
+    void correctCopies_ShouldRefuse_WhenCountHasMovedOn() {
+        store.addBook(new Book("123", "Title 1", "Author 1", 2008, 4));
+        store.borrowBook("123");
+
+        assertFalse(store.correctCopies("123", 4, 1));
+        assertFalse(store.correctCopies("missing", 0, 1));
+
+        assertEquals(3, store.findBookByISBN("123").orElseThrow().getAvailableCopies());
+    }
+
+    @Test
+    void listeners_ShouldSeeEveryMutation() {
+        List<String> events = new ArrayList<>();
+        store.addListener(new LibraryListener() {
+            @Override
+            public void bookAdded(Book book) {
+                events.add("added " + book.getIsbn());
+            }
+
+            @Override
+            public void bookRemoved(Book book) {
+                events.add("removed " + book.getIsbn());
+            }
+
+            @Override
+            public void copiesChanged(Book book, int delta) {
+                events.add("copies " + book.getIsbn() + " " + delta + " -> " + book.getAvailableCopies());
+            }
+        });
+
+        store.addBook(new Book("123", "Title 1", "Author 1", 2008, 2));
+        store.borrowBook("123");
+        store.returnBook("123");
+        store.addBook(new Book("123", "Title 1", "Author 1", 2008, 4));
+        store.removeBook("123");
+
+        assertEquals(List.of("added 123", "copies 123 -1 -> 1", "copies 123 1 -> 2", "removed 123", "added 123", "removed 123"), events);
+    }
+
+    @Test
+    void snapshot_ShouldNotSeeLaterWrites() {
+        store.addBook(new Book("1", "Title 1", "Author 1", 2001, 3));
+        store.addBook(new Book("2", "Title 2", "Author 2", 2002, 3));
+
+        try (CatalogueSnapshot snapshot = store.snapshot()) {
+            store.borrowBook("1");
+            store.removeBook("2");
+            store.addBook(new Book("3", "Title 3", "Author 3", 2003, 3));
+
+            Map<String, Integer> copies = snapshot.books()
+                    .collect(Collectors.toMap(Book::getIsbn, Book::getAvailableCopies));
+            assertEquals(Map.of("1", 3, "2", 3), copies);
+        }
+        assertEquals(2, store.books().count());
+    }
+
+    @Test
+    void borrowBook_ShouldNotLoseUpdates_WhenBorrowedConcurrently() throws Exception {
+        int threads = 8;
+        int borrowsPerThread = 250;
+        store.addBook(new Book("123", "Title 1", "Author 1", 2008, threads * borrowsPerThread));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger borrowed = new AtomicInteger();
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < borrowsPerThread; i++) {
+                    if (store.borrowBook("123")) {
+                        borrowed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(threads * borrowsPerThread, borrowed.get());
+        assertEquals(0, store.findBookByISBN("123").orElseThrow().getAvailableCopies());
+    }
+
+    /* Not a benchmark, but the same workload on every engine makes their relative cost visible in the test log */
+    @Test
+    void performance_ShouldServeBulkWorkload() {
+        long start = System.nanoTime();
+        for (int i = 0; i < PERFORMANCE_BOOKS; i++) {
+            store.addBook(new Book("perf-" + i, "Title " + i, "Author " + (i % 100), 1900 + i % 120, 5));
+        }
+        long added = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < PERFORMANCE_BOOKS * 5; i++) {
+            found += store.findBookByISBN("perf-" + (i * 7919 % PERFORMANCE_BOOKS)).isPresent() ? 1 : 0;
+        }
+        long read = System.nanoTime();
+        for (int i = 0; i < PERFORMANCE_BOOKS; i++) {
+            store.borrowBook("perf-" + i);
+        }
+        long borrowed = System.nanoTime();
+        int byAuthor = store.findBooksByAuthor("Author 7").size();
+        long scanned = System.nanoTime();
+
+        System.out.printf("%s: %d adds/s, %d reads/s, %d borrows/s, author query %.2f ms%n",
+                getClass().getSimpleName(),
+                perSecond(PERFORMANCE_BOOKS, added - start),
+                perSecond(PERFORMANCE_BOOKS * 5, read - added),
+                perSecond(PERFORMANCE_BOOKS, borrowed - read),
+                (scanned - borrowed) / 1e6); //Works as logger
+        assertEquals(PERFORMANCE_BOOKS * 5, found);
+        assertEquals(PERFORMANCE_BOOKS / 100, byAuthor);
+        assertEquals(4, store.findBookByISBN("perf-0").orElseThrow().getAvailableCopies());
+    }
+
+    private static long perSecond(int operations, long nanos) {
+        return operations * 1_000_000_000L / Math.max(nanos, 1);
+    }
+
+    private static List<String> isbns(BookPage page) {
+        return page.getBooks().stream().map(Book::getIsbn).collect(Collectors.toList());
+    }
+}
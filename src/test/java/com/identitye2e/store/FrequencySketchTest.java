@@ -0,0 +1,45 @@
+package com.identitye2e.store;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrequencySketchTest {
+
+    @Test
+    void frequency_ShouldCountIncrements() {
+        FrequencySketch sketch = new FrequencySketch(1_000);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("hot");
+        }
+        sketch.increment("warm");
+
+        assertEquals(5, sketch.frequency("hot"));
+        assertEquals(1, sketch.frequency("warm"));
+        assertEquals(0, sketch.frequency("never"));
+    }
+
+    @Test
+    void frequency_ShouldSaturateAtFifteen() {
+        FrequencySketch sketch = new FrequencySketch(1_000);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("hot");
+        }
+
+        assertEquals(15, sketch.frequency("hot"));
+    }
+
+    @Test
+    void frequency_ShouldAge_WhenSampleIsFull() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 8; i++) {
+            sketch.increment("old");
+        }
+        // 10 x 16 increments make a sample; spreading them over many keys halves every counter once
+        for (int i = 0; i < 160; i++) {
+            sketch.increment("key-" + i);
+        }
+
+        assertTrue(sketch.frequency("old") <= 4, "frequency " + sketch.frequency("old"));
+    }
+}
@@ -0,0 +1,12 @@
+package com.identitye2e.store;
+
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.Library;
+
+public class LibraryConformanceTest extends BookStoreConformanceTest {
+
+    @Override
+    protected BookStore createStore() {
+        return new Library();
+    }
+}
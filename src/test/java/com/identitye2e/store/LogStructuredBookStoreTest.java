@@ -0,0 +1,136 @@
+package com.identitye2e.store;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.CatalogueSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogStructuredBookStoreTest extends BookStoreConformanceTest {
+    private static final int SEGMENT_BYTES = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    @Override
+    protected BookStore createStore() {
+        return new LogStructuredBookStore(directory, SEGMENT_BYTES);
+    }
+
+    @Test
+    void open_ShouldRecoverBooks_WhenReopened() {
+        store.addBook(new Book("1", "Title 1", null, 2001, 3));
+        store.addBook(new Book("2", "Title 2", "Author 2", 2002, 3));
+        store.borrowBook("1");
+        store.removeBook("2");
+        ((LogStructuredBookStore) store).close();
+
+        store = createStore();
+
+        assertEquals(2, store.findBookByISBN("1").orElseThrow().getAvailableCopies());
+        assertNull(store.findBookByISBN("1").orElseThrow().getAuthor());
+        assertTrue(store.findBookByISBN("2").isEmpty());
+        assertEquals(1, store.findBooksByPublicationYear(null, 2000, 2010, null, 10).getBooks().size());
+    }
+
+    @Test
+    void open_ShouldDropTornRecord_WhenLastWriteWasIncomplete() throws Exception {
+        store.addBook(new Book("1", "Title 1", "Author 1", 2001, 3));
+        store.addBook(new Book("2", "Title 2", "Author 2", 2002, 3));
+        ((LogStructuredBookStore) store).close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        int secondRecord = BookRecord.put(new Book("1", "Title 1", "Author 1", 2001, 3)).length;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(secondRecord + BookRecord.HEADER_BYTES + 2);
+            file.write(0x7f);
+        }
+
+        store = createStore();
+        store.addBook(new Book("3", "Title 3", "Author 3", 2003, 3));
+        ((LogStructuredBookStore) store).close();
+        store = createStore();
+
+        assertTrue(store.findBookByISBN("1").isPresent());
+        assertTrue(store.findBookByISBN("2").isEmpty());
+        assertTrue(store.findBookByISBN("3").isPresent());
+    }
+
+    @Test
+    void compact_ShouldReclaimDeadSegments_WhenBooksAreRewritten() {
+        store = new LogStructuredBookStore(directory.resolve("small"), 4096);
+        for (int i = 0; i < 10; i++) {
+            store.addBook(new Book("isbn-" + i, "Title " + i, "Author", 2000 + i, 1000));
+        }
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 10; i++) {
+                store.borrowBook("isbn-" + i);
+            }
+        }
+        LogStructuredBookStore disk = (LogStructuredBookStore) store;
+        disk.compact();
+
+        assertTrue(disk.segmentCount() <= 3, "dead segments should be compacted away, found " + disk.segmentCount());
+        disk.close();
+        store = new LogStructuredBookStore(directory.resolve("small"), 4096);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(950, store.findBookByISBN("isbn-" + i).orElseThrow().getAvailableCopies());
+        }
+    }
+
+    @Test
+    void borrowBook_ShouldCompactInBackground_WhenSegmentsRoll() {
+        LogStructuredBookStore disk = new LogStructuredBookStore(directory.resolve("small"), 4096);
+        for (int i = 0; i < 10; i++) {
+            disk.addBook(new Book("isbn-" + i, "Title " + i, "Author", 2000 + i, 1000));
+        }
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 10; i++) {
+                disk.borrowBook("isbn-" + i);
+            }
+        }
+        disk.close();
+
+        assertTrue(disk.segmentCount() <= 3, "dead segments should be compacted away, found " + disk.segmentCount());
+    }
+
+    @Test
+    void addBook_ShouldRejectBook_WhenTitleIsLongerThanTheRecordFormatAllows() {
+        String title = "t".repeat(65536);
+
+        assertThrows(IllegalArgumentException.class, () -> store.addBook(new Book("long-1", title, "Author", 2000, 1)));
+        assertTrue(store.findBookByISBN("long-1").isEmpty());
+    }
+
+    @Test
+    void snapshot_ShouldSurviveCompaction() {
+        store = new LogStructuredBookStore(directory.resolve("small"), 4096);
+        for (int i = 0; i < 10; i++) {
+            store.addBook(new Book("isbn-" + i, "Title " + i, "Author", 2000 + i, 1000));
+        }
+
+        try (CatalogueSnapshot snapshot = store.snapshot()) {
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < 10; i++) {
+                    store.borrowBook("isbn-" + i);
+                }
+            }
+            ((LogStructuredBookStore) store).compact();
+
+            Map<String, Integer> copies = snapshot.books().collect(Collectors.toMap(Book::getIsbn, Book::getAvailableCopies));
+            assertEquals(10, copies.size());
+            assertTrue(copies.values().stream().allMatch(available -> available == 1000));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.identitye2e.store;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.model.CatalogueSnapshot;
+import com.identitye2e.model.TierStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredBookStoreTest extends BookStoreConformanceTest {
+    private static final int HOT_CAPACITY = 4;
+
+    @TempDir
+    Path directory;
+
+    /* A tiny hot tier, so the conformance suite runs mostly against demoted books */
+    @Override
+    protected BookStore createStore() {
+        return new TieredBookStore(HOT_CAPACITY, directory, 1 << 16);
+    }
+
+    @Test
+    void addBook_ShouldDemoteOldestBooks_WhenHotTierIsFull() {
+        for (int i = 0; i < 10; i++) {
+            store.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2000, 3));
+        }
+
+        TierStats stats = stats();
+        assertEquals(HOT_CAPACITY, stats.getHotBooks());
+        assertEquals(6, stats.getColdBooks());
+        assertEquals(6, stats.getDemotions());
+        assertTrue(stats.getColdBytes() > 0);
+        assertEquals("Title 0", store.findBookByISBN("0").orElseThrow().getTitle());
+    }
+
+    @Test
+    void findBookByISBN_ShouldPromoteFrequentBook_OverOneHitWonders() {
+        for (int i = 0; i < 10; i++) {
+            store.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2000, 3));
+        }
+        for (int i = 0; i < 5; i++) {
+            store.findBookByISBN("0");
+        }
+        assertTrue(stats().getPromotions() >= 1);
+
+        // Each of these is read once: none is wanted more often than book 0, so none can push it out
+        for (int i = 1; i < 10; i++) {
+            store.findBookByISBN(String.valueOf(i));
+        }
+        long coldHits = stats().getColdHits();
+        store.findBookByISBN("0");
+
+        assertEquals(coldHits, stats().getColdHits());
+        assertTrue(stats().getHotHits() > 0);
+    }
+
+    @Test
+    void books_ShouldNotPromote_WhenCatalogueIsScanned() {
+        for (int i = 0; i < 10; i++) {
+            store.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2000, 3));
+        }
+
+        assertEquals(10, store.books().count());
+        assertEquals(10, store.findBooksByAuthor("Author").size());
+        assertEquals(10, store.findBooksByPublicationYear(null, 2000, 2000, null, 20).getBooks().size());
+        assertEquals(0, stats().getPromotions());
+        assertEquals(0, stats().getColdHits());
+    }
+
+    @Test
+    void borrowBook_ShouldUpdateColdBookInPlace() {
+        for (int i = 0; i < 10; i++) {
+            store.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2000, 3));
+        }
+        store.findBookByISBN("5");
+        store.findBookByISBN("5");
+
+        assertTrue(store.borrowBook("0"));
+        assertTrue(store.correctCopies("1", 3, 7));
+
+        assertEquals(2, store.findBookByISBN("0").orElseThrow().getAvailableCopies());
+        assertEquals(7, store.findBookByISBN("1").orElseThrow().getAvailableCopies());
+        assertEquals(10, stats().getHotBooks() + stats().getColdBooks());
+    }
+
+    @Test
+    void snapshot_ShouldSeeDemotedBooksAsTheyWere() {
+        store.addBook(new Book("1", "Title 1", "Author 1", 2008, 3));
+        store.addBook(new Book("2", "Title 2", "Author 2", 2009, 3));
+
+        try (CatalogueSnapshot snapshot = store.snapshot()) {
+            for (int i = 10; i < 20; i++) {
+                store.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2000, 3));
+            }
+            store.borrowBook("1");
+            store.removeBook("2");
+            store.addBook(new Book("2", "Title 2 again", "Author 2", 2009, 1));
+
+            Map<String, Integer> copies = snapshot.books()
+                    .collect(Collectors.toMap(Book::getIsbn, Book::getAvailableCopies));
+            assertEquals(Map.of("1", 3, "2", 3), copies);
+        }
+        assertEquals(12, store.books().count());
+        assertEquals(2, store.findBookByISBN("1").orElseThrow().getAvailableCopies());
+    }
+
+    @Test
+    void addBook_ShouldReplaceColdBookWithHotOne() {
+        for (int i = 0; i < 10; i++) {
+            store.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2000, 3));
+        }
+
+        store.addBook(new Book("0", "New title", "Author", 2001, 5));
+
+        TierStats stats = stats();
+        assertEquals(HOT_CAPACITY, stats.getHotBooks());
+        assertEquals(6, stats.getColdBooks());
+        assertEquals("New title", store.findBookByISBN("0").orElseThrow().getTitle());
+        assertEquals(10, store.books().count());
+    }
+
+    @Test
+    void removeBook_ShouldFreeColdSpace() {
+        for (int i = 0; i < 10; i++) {
+            store.addBook(new Book(String.valueOf(i), "Title " + i, "Author", 2000, 3));
+        }
+        for (int i = 0; i < 10; i++) {
+            store.removeBook(String.valueOf(i));
+        }
+
+        TierStats stats = stats();
+        assertEquals(0, stats.getHotBooks());
+        assertEquals(0, stats.getColdBooks());
+        assertEquals(0, stats.getColdBytes());
+        assertEquals(0, store.books().count());
+    }
+
+    @Test
+    void correctCopies_ShouldCompactColdTierInBackground_WhenSegmentsRoll() throws Exception {
+        TieredBookStore tiered = new TieredBookStore(HOT_CAPACITY, directory.resolve("small"), 4096);
+        for (int i = 0; i < 20; i++) {
+            tiered.addBook(new Book("isbn-" + i, "Title " + i, "Author", 2000 + i, 1000));
+        }
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 20; i++) {
+                tiered.correctCopies("isbn-" + i, 1000 - round, 999 - round);
+            }
+        }
+        int segments = tiered.coldSegmentCount();
+
+        assertTrue(segments <= 4, "dead cold segments should be compacted away, found " + segments);
+        assertTrue(tiered.books().allMatch(book -> book.getAvailableCopies() == 950));
+        tiered.close();
+    }
+
+    @Test
+    void books_ShouldSeeEveryColdBook_WhileCompactionMovesThem() throws Exception {
+        TieredBookStore tiered = new TieredBookStore(HOT_CAPACITY, directory.resolve("small"), 4096);
+        for (int i = 0; i < 20; i++) {
+            tiered.addBook(new Book("isbn-" + i, "Title " + i, "Author", 2000 + i, 1000));
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong missed = new AtomicLong();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                missed.addAndGet(20 - tiered.books().count());
+            }
+        });
+        reader.start();
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 20; i++) {
+                tiered.correctCopies("isbn-" + i, 1000 - round, 999 - round);
+            }
+        }
+        tiered.coldSegmentCount();
+        done.set(true);
+        reader.join();
+        tiered.close();
+
+        assertEquals(0, missed.get());
+    }
+
+    private TierStats stats() {
+        return store.tierStats().orElseThrow();
+    }
+}
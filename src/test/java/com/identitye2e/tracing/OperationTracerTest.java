@@ -0,0 +1,200 @@
+package com.identitye2e.tracing;
+
+import com.identitye2e.service.LibraryService;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OperationTracerTest {
+    private RecentSpans spans;
+    private SdkTracerProvider tracerProvider;
+    private List<String> slowLog;
+
+    @BeforeEach
+    void setUp() {
+        spans = new RecentSpans(16);
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(spans)).build();
+        slowLog = new ArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void store_ShouldNestUnderCurrentOperation() {
+        OperationTracer tracer = new OperationTracer(tracerProvider, true, Duration.ofHours(1), 1.0, slowLog::add);
+
+        try (Operation operation = tracer.start("findBookByISBN", "9780306406157")) {
+            tracer.store("findBookByISBN", () -> Optional.empty());
+            operation.results(1);
+        }
+
+        List<SpanSummary> recent = spans.recent();
+        assertEquals(2, recent.size());
+        SpanSummary operation = recent.get(0);
+        SpanSummary store = recent.get(1);
+        assertEquals("findBookByISBN", operation.getName());
+        assertEquals("BookStore.findBookByISBN", store.getName());
+        assertEquals(operation.getSpanId(), store.getParentSpanId());
+        assertEquals("9780306406157", operation.getAttributes().get("library.key"));
+        assertEquals("1", operation.getAttributes().get("library.results"));
+    }
+
+    @Test
+    void close_ShouldLogPhases_WhenOperationIsSlow() {
+        OperationTracer tracer = new OperationTracer(tracerProvider, true, Duration.ZERO, 1.0, slowLog::add);
+
+        try (Operation operation = tracer.start("findBooksByAuthor", "Jane Doe")) {
+            tracer.cacheMiss("findBooksByAuthor", "Jane Doe", 1, () -> List.of("a", "b"));
+            operation.results(2);
+        }
+
+        assertEquals(1, slowLog.size());
+        String line = slowLog.get(0);
+        assertTrue(line.startsWith("Slow findBooksByAuthor key=Jane Doe results=2 outcome=ok cache=miss took "), line);
+        assertTrue(line.contains(" store "), line);
+        assertTrue(line.contains(" other "), line);
+    }
+
+    @Test
+    void close_ShouldRecordOutcome_WhenOperationFails() {
+        OperationTracer tracer = new OperationTracer(tracerProvider, true, Duration.ZERO, 1.0, slowLog::add);
+
+        try (Operation operation = tracer.start("borrowBook", "123")) {
+            operation.failed(new IllegalStateException("no copies"));
+        }
+
+        assertTrue(slowLog.get(0).contains("outcome=IllegalStateException"));
+        assertTrue(spans.recent().get(0).isError());
+    }
+
+    @Test
+    void close_ShouldNotLog_WhenNotSampledOrFast() {
+        OperationTracer unsampled = new OperationTracer(tracerProvider, true, Duration.ZERO, 0.0, slowLog::add);
+        OperationTracer fast = new OperationTracer(tracerProvider, true, Duration.ofHours(1), 1.0, slowLog::add);
+
+        unsampled.start("findBookByISBN", "1").close();
+        fast.start("findBookByISBN", "2").close();
+
+        assertTrue(slowLog.isEmpty());
+        assertEquals(2, spans.recent().size());
+    }
+
+    @Test
+    void recent_ShouldKeepNewestSpans_WhenCapacityIsExceeded() {
+        OperationTracer tracer = new OperationTracer(tracerProvider, true, Duration.ofHours(1), 1.0, slowLog::add);
+
+        for (int i = 0; i < 20; i++) {
+            tracer.start("findBookByISBN", String.valueOf(i)).close();
+        }
+
+        List<SpanSummary> recent = spans.recent();
+        assertEquals(16, recent.size());
+        assertEquals("19", recent.get(0).getAttributes().get("library.key"));
+        assertEquals("4", recent.get(15).getAttributes().get("library.key"));
+    }
+
+    @Test
+    void start_ShouldReturnNoop_WhenTracingIsDisabled() {
+        OperationTracer tracer = new OperationTracer(tracerProvider, false, Duration.ZERO, 1.0, slowLog::add);
+
+        Operation operation = tracer.start("findBookByISBN", "1");
+        assertEquals("stored", tracer.store("findBookByISBN", () -> "stored"));
+        operation.close();
+
+        assertSame(Operation.NOOP, operation);
+        assertTrue(spans.recent().isEmpty());
+        assertTrue(slowLog.isEmpty());
+    }
+
+    @Test
+    void start_ShouldCommitJfrEvents_WhenRecordingEnablesThem(@TempDir Path dir) throws Exception {
+        OperationTracer tracer = OperationTracer.disabled();
+        Path file = dir.resolve("library.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.identitye2e.Lookup");
+            recording.enable("com.identitye2e.CacheMiss");
+            recording.start();
+            try (Operation operation = tracer.start("findBookByISBN", "9780306406157", new LookupEvent())) {
+                tracer.cacheMiss("findBookByISBN", "9780306406157", 1, () -> Optional.empty());
+                operation.results(1);
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("com.identitye2e."))
+                .toList();
+        assertEquals(2, events.size());
+        RecordedEvent lookup = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.identitye2e.Lookup"))
+                .findFirst().orElseThrow();
+        assertEquals("findBookByISBN", lookup.getString("operation"));
+        assertEquals("9780306406157", lookup.getString("key"));
+        assertEquals(1, lookup.getInt("results"));
+        assertEquals("ok", lookup.getString("outcome"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void invoke_ShouldNotBuildKey_WhenTracingAndRecordingAreOff() throws Throwable {
+        ObjectProvider<OperationTracer> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(OperationTracer.disabled());
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(LibraryService.class.getMethod("borrowBook", String.class));
+        when(invocation.proceed()).thenReturn(true);
+
+        assertEquals(true, new LibraryServiceInterceptor(provider).invoke(invocation));
+        verify(invocation, never()).getArguments();
+    }
+
+    @Test
+    void slowLog_ShouldNotWaitForSink_WhenSinkIsBlocked() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+        BackgroundLog log = new BackgroundLog("test-log", 2, line -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.add(line);
+        });
+
+        for (int i = 0; i < 10; i++) {
+            log.accept("line " + i);
+        }
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (written.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("line 0", written.get(0));
+        assertTrue(written.size() < 10, written.toString());
+    }
+}
@@ -0,0 +1,46 @@
+package com.identitye2e.tracing;
+
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import com.identitye2e.service.LibraryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "library.tracing.enabled=true")
+public class TracingIT {
+
+    @Autowired
+    private LibraryService libraryService;
+
+    @Autowired
+    private BookStore library;
+
+    @Autowired
+    private RecentSpans recentSpans;
+
+    @Test
+    void findBookByISBN_ShouldTraceStoreCallOnlyOnCacheMiss() {
+        library.addBook(new Book("9780306406157", "Traced Title", "Traced Author", 2020, 5));
+
+        libraryService.findBookByISBN("9780306406157");
+        List<SpanSummary> miss = recentSpans.recent();
+        libraryService.findBookByISBN("9780306406157");
+        List<SpanSummary> hit = recentSpans.recent();
+
+        SpanSummary operation = miss.get(0);
+        SpanSummary store = miss.get(1);
+        assertEquals("findBookByISBN", operation.getName());
+        assertEquals("true", operation.getAttributes().get("library.cache_miss"));
+        assertEquals("BookStore.findBookByISBN", store.getName());
+        assertEquals(operation.getSpanId(), store.getParentSpanId());
+
+        assertEquals(miss.size() + 1, hit.size());
+        assertEquals("findBookByISBN", hit.get(0).getName());
+        assertEquals("false", hit.get(0).getAttributes().get("library.cache_miss"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.identitye2e.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.identitye2e.model.Book;
+import com.identitye2e.model.BookStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class CompressionIT {
+
+    private static final String AUTHOR = "Compression Author";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BookStore library;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 50; i++) {
+            library.addBook(new Book("compression-" + i, "The Collected Works Volume " + i, AUTHOR, 1950 + i, 5));
+        }
+        library.addBook(new Book("compression-single", "Single", "Single Author", 2000, 1));
+    }
+
+    @Test
+    void largeResponse_ShouldBeGzipped_WhenClientAcceptsGzip() throws Exception {
+        HttpResponse<byte[]> response = get("/api/library/findBooksByAuthor?author=Compression%20Author", "application/json");
+
+        assertEquals(200, response.statusCode());
+        assertEquals(Optional.of("gzip"), response.headers().firstValue("Content-Encoding"));
+    }
+
+    @Test
+    void smallResponse_ShouldNotBeCompressed_WhenUnderThreshold() throws Exception {
+        HttpResponse<byte[]> response = get("/api/library/findBooksByAuthor?author=Single%20Author", "application/json");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals(Optional.of(String.valueOf(response.body().length)), response.headers().firstValue("Content-Length"));
+    }
+
+    @Test
+    void requests_ShouldUpgradeToHttp2_WhenClientOffersH2c() throws Exception {
+        get("/api/library/findBookByIsbn?isbn=compression-single", "application/json");
+        HttpResponse<byte[]> response = get("/api/library/findBookByIsbn?isbn=compression-single", "application/json");
+
+        assertEquals(HttpClient.Version.HTTP_2, response.version());
+    }
+
+    @Test
+    void findBookByIsbn_ShouldReturnCbor_WhenClientPrefersIt() throws Exception {
+        HttpResponse<byte[]> response = get("/api/library/findBookByIsbn?isbn=compression-single", "application/cbor");
+
+        assertEquals(Optional.of("application/cbor"), response.headers().firstValue("Content-Type"));
+        JsonNode body = new CBORMapper().readTree(response.body());
+        assertEquals("Single", body.path("data").path("title").asText());
+    }
+
+    private HttpResponse<byte[]> get(String path, String accept) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Accept", accept)
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,127 @@
+package com.identitye2e.web;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentLengthFilterTest {
+    private final ContentLengthFilter filter = new ContentLengthFilter(true, DataSize.ofBytes(16));
+
+    @Test
+    void doFilter_ShouldSetContentLength_WhenBodyFitsUnderThreshold() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest(), response, (req, res) -> {
+            res.getOutputStream().write(bytes("small body"));
+            res.getOutputStream().flush();
+        });
+
+        assertEquals(10, response.getContentLength());
+        assertEquals("small body", response.getContentAsString());
+    }
+
+    @Test
+    void doFilter_ShouldStreamWithoutContentLength_WhenBodyExceedsThreshold() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest(), response, (req, res) -> {
+            res.getOutputStream().write(bytes("first "));
+            res.getOutputStream().write(bytes("then a longer part"));
+        });
+
+        assertEquals(0, response.getContentLength());
+        assertEquals("first then a longer part", response.getContentAsString());
+    }
+
+    @Test
+    void doFilter_ShouldKeepApplicationContentLength_WhenAlreadySet() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest(), response, (req, res) -> {
+            res.setContentLength(5);
+            res.getOutputStream().write(bytes("bytes"));
+        });
+
+        assertEquals(5, response.getContentLength());
+        assertEquals("bytes", response.getContentAsString());
+    }
+
+    @Test
+    void doFilter_ShouldBufferWriterOutput_WhenBodyFitsUnderThreshold() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+
+        filter.doFilter(new MockHttpServletRequest(), response, (req, res) -> res.getWriter().write("written"));
+
+        assertEquals(7, response.getContentLength());
+        assertEquals("written", response.getContentAsString());
+    }
+
+    @Test
+    void doFilter_ShouldLeaveResponseAlone_WhenCompressionIsOff() throws Exception {
+        ContentLengthFilter off = new ContentLengthFilter(false, DataSize.ofBytes(16));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        off.doFilter(new MockHttpServletRequest(), response, (req, res) -> res.getOutputStream().write(bytes("small body")));
+
+        assertEquals(0, response.getContentLength());
+        assertEquals("small body", response.getContentAsString());
+    }
+
+    @Test
+    void setWriteListener_ShouldReachContainerStream_WhenHandlerWritesNonBlocking() throws Exception {
+        AtomicReference<WriteListener> registered = new AtomicReference<>();
+        HttpServletResponse response = new HttpServletResponseWrapper(new MockHttpServletResponse()) {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return false;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        registered.set(listener);
+                    }
+
+                    @Override
+                    public void write(int b) {
+                    }
+                };
+            }
+        };
+        WriteListener listener = new WriteListener() {
+            @Override
+            public void onWritePossible() {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+        boolean[] ready = new boolean[1];
+
+        filter.doFilter(new MockHttpServletRequest(), response, (req, res) -> {
+            res.getOutputStream().setWriteListener(listener);
+            ready[0] = res.getOutputStream().isReady();
+        });
+
+        assertSame(listener, registered.get());
+        assertFalse(ready[0]);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}